@@ -0,0 +1,57 @@
+/*
+ * Copyright 2013 SmartBear Software
+ *
+ * Licensed under the EUPL, Version 1.1 or - as soon they will be approved by the European Commission - subsequent
+ * versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is
+ * distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the Licence for the specific language governing permissions and limitations
+ * under the Licence.
+ */
+package org.guavafx.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler, which reports the allocation rate, and writes the results as JSON to
+ * target/jmh-result.json, so that the results of different releases can be compared.
+ *
+ * The usual JMH command line options can be used to narrow down or override the defaults, e.g.
+ * java -jar target/benchmarks.jar -p operator=FILTER -p size=1000 -rff filter.json
+ */
+public final class BenchmarkRunner
+{
+	private BenchmarkRunner()
+	{
+	}
+
+	public static void main( String[] args ) throws RunnerException, CommandLineOptionException
+	{
+		CommandLineOptions commandLine = new CommandLineOptions( args );
+		OptionsBuilder builder = new OptionsBuilder();
+		builder.parent( commandLine );
+		if( commandLine.getIncludes().isEmpty() )
+		{
+			builder.include( OperatorBenchmark.class.getSimpleName() );
+		}
+		builder.addProfiler( GCProfiler.class ).resultFormat( ResultFormatType.JSON );
+		if( !commandLine.getResult().hasValue() )
+		{
+			builder.result( "target/jmh-result.json" );
+		}
+		Options options = builder.build();
+		new Runner( options ).run();
+	}
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2013 SmartBear Software
+ *
+ * Licensed under the EUPL, Version 1.1 or - as soon they will be approved by the European Commission - subsequent
+ * versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is
+ * distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the Licence for the specific language governing permissions and limitations
+ * under the Licence.
+ */
+package org.guavafx.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+
+/**
+ * The kinds of source changes measured by OperatorBenchmark. Each shape alternates between a change and its inverse,
+ * so that the size of the source list stays the same throughout a benchmark.
+ */
+public enum ChangeShape
+{
+	/**
+	 * Adds an element at a random index, and then removes it again.
+	 */
+	SINGLE_ADD
+	{
+		@Override
+		Mutation create( final Random random )
+		{
+			return new Mutation()
+			{
+				private int added = -1;
+
+				@Override
+				public void apply( ObservableList<Integer> list )
+				{
+					if( added < 0 )
+					{
+						added = random.nextInt( list.size() + 1 );
+						list.add( added, random.nextInt() );
+					}
+					else
+					{
+						list.remove( added );
+						added = -1;
+					}
+				}
+			};
+		}
+	},
+	/**
+	 * Replaces all elements using setAll(), alternating between two sets of elements.
+	 */
+	BULK_SET_ALL
+	{
+		@Override
+		Mutation create( final Random random )
+		{
+			return new Mutation()
+			{
+				private List<Integer> other;
+
+				@Override
+				public void apply( ObservableList<Integer> list )
+				{
+					if( other == null )
+					{
+						other = new ArrayList<>( list.size() );
+						for( int i = 0; i < list.size(); i++ )
+						{
+							other.add( random.nextInt() );
+						}
+					}
+					List<Integer> current = new ArrayList<>( list );
+					list.setAll( other );
+					other = current;
+				}
+			};
+		}
+	},
+	/**
+	 * Removes the element at a random index, and then puts it back.
+	 */
+	RANDOM_REMOVE
+	{
+		@Override
+		Mutation create( final Random random )
+		{
+			return new Mutation()
+			{
+				private int removedIndex = -1;
+				private Integer removed;
+
+				@Override
+				public void apply( ObservableList<Integer> list )
+				{
+					if( removedIndex < 0 )
+					{
+						removedIndex = random.nextInt( list.size() );
+						removed = list.remove( removedIndex );
+					}
+					else
+					{
+						list.add( removedIndex, removed );
+						removedIndex = -1;
+					}
+				}
+			};
+		}
+	},
+	/**
+	 * Sorts the list, alternating between two orders, which is reported as a single permutation.
+	 */
+	PERMUTATION
+	{
+		@Override
+		Mutation create( Random random )
+		{
+			return new Mutation()
+			{
+				private boolean ascending = true;
+
+				@Override
+				public void apply( ObservableList<Integer> list )
+				{
+					FXCollections.sort( list, ascending ? ASCENDING : DESCENDING );
+					ascending = !ascending;
+				}
+			};
+		}
+	};
+
+	private static final Comparator<Integer> ASCENDING = new Comparator<Integer>()
+	{
+		@Override
+		public int compare( Integer left, Integer right )
+		{
+			return Integer.compare( left, right );
+		}
+	};
+
+	private static final Comparator<Integer> DESCENDING = new Comparator<Integer>()
+	{
+		@Override
+		public int compare( Integer left, Integer right )
+		{
+			return Integer.compare( right, left );
+		}
+	};
+
+	/**
+	 * A change, or series of changes, applied to a source list once per benchmark invocation.
+	 */
+	interface Mutation
+	{
+		void apply( ObservableList<Integer> list );
+	}
+
+	abstract Mutation create( Random random );
+}
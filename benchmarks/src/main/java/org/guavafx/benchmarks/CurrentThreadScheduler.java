@@ -0,0 +1,45 @@
+/*
+ * Copyright 2013 SmartBear Software
+ *
+ * Licensed under the EUPL, Version 1.1 or - as soon they will be approved by the European Commission - subsequent
+ * versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is
+ * distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the Licence for the specific language governing permissions and limitations
+ * under the Licence.
+ */
+package org.guavafx.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.guavafx.Scheduler;
+
+/**
+ * A Scheduler which treats the current thread as its own, so that lists which normally update on the FX thread are
+ * updated synchronously, without starting the JavaFX toolkit.
+ */
+final class CurrentThreadScheduler extends Scheduler
+{
+	@Override
+	public long nanoTime()
+	{
+		return System.nanoTime();
+	}
+
+	@Override
+	public void schedule( Runnable task, long delay, TimeUnit unit )
+	{
+		task.run();
+	}
+
+	@Override
+	public boolean isSchedulerThread()
+	{
+		return true;
+	}
+}
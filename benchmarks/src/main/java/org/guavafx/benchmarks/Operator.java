@@ -0,0 +1,133 @@
+/*
+ * Copyright 2013 SmartBear Software
+ *
+ * Licensed under the EUPL, Version 1.1 or - as soon they will be approved by the European Commission - subsequent
+ * versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is
+ * distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the Licence for the specific language governing permissions and limitations
+ * under the Licence.
+ */
+package org.guavafx.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javafx.beans.InvalidationListener;
+import javafx.beans.Observable;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+
+import org.guavafx.FxDispatcher;
+import org.guavafx.ObservableLists;
+
+import com.google.common.base.Function;
+import com.google.common.base.Predicate;
+import com.google.common.collect.Ordering;
+
+/**
+ * The ObservableLists operators covered by OperatorBenchmark. Each operator is attached to a source list, and kept up
+ * to date as the source changes.
+ */
+public enum Operator
+{
+	FILTER
+	{
+		@Override
+		Object attach( ObservableList<Integer> source )
+		{
+			return observed( ObservableLists.filter( source, new Predicate<Integer>()
+			{
+				@Override
+				public boolean apply( Integer input )
+				{
+					return input % 2 == 0;
+				}
+			} ) );
+		}
+	},
+	TRANSFORM
+	{
+		@Override
+		Object attach( ObservableList<Integer> source )
+		{
+			return observed( ObservableLists.transform( source, new Function<Integer, Long>()
+			{
+				@Override
+				public Long apply( Integer input )
+				{
+					return input * 31L;
+				}
+			} ) );
+		}
+	},
+	CONCAT
+	{
+		@Override
+		Object attach( ObservableList<Integer> source )
+		{
+			return observed( ObservableLists.concat( source, FXCollections.observableArrayList( 1, 2, 3 ) ) );
+		}
+	},
+	/**
+	 * An fx() list updated on the current thread, which does the same work as optimize() does on the FX thread:
+	 * snapshotting the source list and diffing it against the copy.
+	 */
+	OPTIMIZE
+	{
+		@Override
+		Object attach( ObservableList<Integer> source )
+		{
+			FxDispatcher dispatcher = FxDispatcher.create( new CurrentThreadScheduler(), Double.POSITIVE_INFINITY );
+			return observed( ObservableLists.fx( source, dispatcher ) );
+		}
+	},
+	BIND_CONTENT_UNORDERED
+	{
+		@Override
+		Object attach( ObservableList<Integer> source )
+		{
+			List<Integer> target = new ArrayList<>();
+			ObservableLists.bindContentUnordered( target, source );
+			return target;
+		}
+	},
+	BIND_SORTED
+	{
+		@Override
+		Object attach( ObservableList<Integer> source )
+		{
+			List<Integer> target = new ArrayList<>();
+			ObservableLists.bindSorted( target, source, Ordering.natural() );
+			return target;
+		}
+	};
+
+	private static final InvalidationListener NO_OP = new InvalidationListener()
+	{
+		@Override
+		public void invalidated( Observable observable )
+		{
+		}
+	};
+
+	/**
+	 * Attaches the operator to the source list, returning the result, which must be kept reachable for as long as it
+	 * is measured.
+	 */
+	abstract Object attach( ObservableList<Integer> source );
+
+	/**
+	 * Adds a listener to the list, so that lazy lists are kept up to date.
+	 */
+	private static <E> ObservableList<E> observed( ObservableList<E> list )
+	{
+		list.addListener( NO_OP );
+		return list;
+	}
+}
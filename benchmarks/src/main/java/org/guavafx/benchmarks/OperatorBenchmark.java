@@ -0,0 +1,86 @@
+/*
+ * Copyright 2013 SmartBear Software
+ *
+ * Licensed under the EUPL, Version 1.1 or - as soon they will be approved by the European Commission - subsequent
+ * versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is
+ * distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the Licence for the specific language governing permissions and limitations
+ * under the Licence.
+ */
+package org.guavafx.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how long an operator takes to bring its result up to date after a change of its source list, for every
+ * combination of operator, source size and change shape.
+ *
+ * Only the source list is touched by the benchmark thread, and all operators update synchronously on that thread, so
+ * no JavaFX toolkit or stage is needed.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( { Mode.Throughput, Mode.SampleTime } )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( value = 1, jvmArgsAppend = "-Djava.awt.headless=true" )
+public class OperatorBenchmark
+{
+	@Param( { "FILTER", "TRANSFORM", "CONCAT", "OPTIMIZE", "BIND_CONTENT_UNORDERED", "BIND_SORTED" } )
+	public Operator operator;
+
+	@Param( { "10", "1000", "100000", "1000000" } )
+	public int size;
+
+	@Param( { "SINGLE_ADD", "BULK_SET_ALL", "RANDOM_REMOVE", "PERMUTATION" } )
+	public ChangeShape shape;
+
+	private ObservableList<Integer> source;
+	private Object result;
+	private ChangeShape.Mutation mutation;
+
+	@Setup
+	public void setUp()
+	{
+		Random random = new Random( 42 );
+		List<Integer> elements = new ArrayList<>( size );
+		for( int i = 0; i < size; i++ )
+		{
+			elements.add( random.nextInt() );
+		}
+		source = FXCollections.observableArrayList( elements );
+		result = operator.attach( source );
+		mutation = shape.create( random );
+	}
+
+	@Benchmark
+	public Object change()
+	{
+		mutation.apply( source );
+		return result;
+	}
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2013 SmartBear Software
+ *
+ * Licensed under the EUPL, Version 1.1 or - as soon they will be approved by the European Commission - subsequent
+ * versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is
+ * distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the Licence for the specific language governing permissions and limitations
+ * under the Licence.
+ */
+package org.guavafx;
+
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import javafx.collections.WeakListChangeListener;
+
+/**
+ * A view of a source list with an extra element either first or last. No copy of the source list is kept, and changes
+ * of the source list are forwarded with their indexes shifted past the extra element.
+ */
+final class AddedElementList<T> extends DerivedObservableList<T>
+{
+	private final ObservableList<? extends T> source;
+	private final T element;
+	private final int offset;
+
+	private final ListChangeListener<T> sourceListener = new ListChangeListener<T>()
+	{
+		@Override
+		public void onChanged( ListChangeListener.Change<? extends T> change )
+		{
+			recordSourceChange( change );
+			beginChange();
+			nextChange( change, offset );
+			endChange();
+		}
+	};
+
+	AddedElementList( ObservableList<? extends T> source, T element, boolean first )
+	{
+		this.source = source;
+		this.element = element;
+		this.offset = first ? 1 : 0;
+		source.addListener( new WeakListChangeListener<>( sourceListener ) );
+	}
+
+	@Override
+	public T get( int index )
+	{
+		if( index < 0 || index > source.size() )
+		{
+			throw new IndexOutOfBoundsException( "Index: " + index + ", Size: " + size() );
+		}
+		if( offset == 1 )
+		{
+			return index == 0 ? element : source.get( index - 1 );
+		}
+		return index == source.size() ? element : source.get( index );
+	}
+
+	@Override
+	public int size()
+	{
+		return source.size() + 1;
+	}
+}
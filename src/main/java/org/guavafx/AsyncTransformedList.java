@@ -0,0 +1,266 @@
+/*
+ * Copyright 2013 SmartBear Software
+ *
+ * Licensed under the EUPL, Version 1.1 or - as soon they will be approved by the European Commission - subsequent
+ * versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is
+ * distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the Licence for the specific language governing permissions and limitations
+ * under the Licence.
+ */
+package org.guavafx;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import javafx.collections.WeakListChangeListener;
+
+import com.google.common.base.Function;
+import com.google.common.collect.Ordering;
+
+/**
+ * An ObservableList containing the result of applying a function to each element of a source list, where the function
+ * is applied using an Executor.
+ *
+ * Each added element gets a slot holding a placeholder until its result is ready. Completed results are collected and
+ * published by an FxDispatcher, so all results completing before the dispatcher gets to run are reported as set
+ * changes in a single change. Results for slots which have been removed in the meantime are discarded.
+ *
+ * If the function fails, the exception is reported to the uncaught exception handler of the executing thread, and the
+ * slot keeps the placeholder. It is retried when its source element is updated, and replaced when the element is.
+ */
+final class AsyncTransformedList<F, T> extends DerivedObservableList<T> implements FxDispatcher.Sink
+{
+	private final IndexedTree<Slot> slots = new IndexedTree<>();
+	private final Function<? super F, ? extends T> function;
+	private final Executor executor;
+	private final FxDispatcher dispatcher;
+	private final T placeholder;
+
+	// Guarded by itself.
+	private final List<Slot> completed = new ArrayList<>();
+
+	private final ListChangeListener<F> sourceListener = new ListChangeListener<F>()
+	{
+		@Override
+		public void onChanged( ListChangeListener.Change<? extends F> change )
+		{
+			recordSourceChange( change );
+			beginChange();
+			while( change.next() )
+			{
+				if( change.wasPermutated() )
+				{
+					sourcePermutated( change );
+				}
+				else if( change.wasUpdated() )
+				{
+					for( int i = change.getFrom(); i < change.getTo(); i++ )
+					{
+						Slot slot = slots.get( i );
+						if( slot.failed )
+						{
+							slot.failed = false;
+							executor.execute( slot );
+						}
+						nextUpdate( i );
+					}
+				}
+				else
+				{
+					if( change.wasRemoved() )
+					{
+						sourceRemoved( change.getFrom(), change.getFrom() + change.getRemovedSize() );
+					}
+					if( change.wasAdded() )
+					{
+						sourceAdded( change.getFrom(), change.getAddedSubList() );
+					}
+				}
+			}
+			endChange();
+		}
+	};
+
+	AsyncTransformedList( ObservableList<F> source, Function<? super F, ? extends T> function, Executor executor,
+			FxDispatcher dispatcher, T placeholder )
+	{
+		this.function = function;
+		this.executor = executor;
+		this.dispatcher = dispatcher;
+		this.placeholder = placeholder;
+		source.addListener( new WeakListChangeListener<>( sourceListener ) );
+		sourceAdded( 0, source );
+	}
+
+	@Override
+	public T get( int index )
+	{
+		return slots.get( index ).value;
+	}
+
+	@Override
+	public int size()
+	{
+		return slots.size();
+	}
+
+	@Override
+	public void flush()
+	{
+		List<Slot> ready;
+		synchronized( completed )
+		{
+			ready = new ArrayList<>( completed );
+			completed.clear();
+		}
+
+		List<Slot> live = new ArrayList<>( ready.size() );
+		for( Slot slot : ready )
+		{
+			if( !slot.removed )
+			{
+				live.add( slot );
+			}
+		}
+		if( live.isEmpty() )
+		{
+			return;
+		}
+
+		beginChange();
+		for( Slot slot : new Ordering<Slot>()
+		{
+			@Override
+			public int compare( Slot left, Slot right )
+			{
+				return Integer.compare( slots.indexOf( left.node ), slots.indexOf( right.node ) );
+			}
+		}.sortedCopy( live ) )
+		{
+			T old = slot.value;
+			slot.value = slot.result;
+			slot.result = null;
+			nextSet( slots.indexOf( slot.node ), old );
+		}
+		endChange();
+	}
+
+	@Override
+	int getPendingUpdateCount()
+	{
+		synchronized( completed )
+		{
+			return completed.size();
+		}
+	}
+
+	private void sourceAdded( int from, List<? extends F> added )
+	{
+		List<Slot> newSlots = new ArrayList<>( added.size() );
+		for( F element : added )
+		{
+			newSlots.add( new Slot( element ) );
+		}
+		int[] weights = new int[newSlots.size()];
+		Arrays.fill( weights, 1 );
+		setNodes( slots.insertAll( from, newSlots, weights ) );
+		nextAdd( from, from + newSlots.size() );
+
+		for( Slot slot : newSlots )
+		{
+			executor.execute( slot );
+		}
+	}
+
+	private void sourceRemoved( int from, int to )
+	{
+		List<Slot> removedSlots = slots.removeRange( from, to );
+		List<T> removed = new ArrayList<>( removedSlots.size() );
+		for( Slot slot : removedSlots )
+		{
+			slot.removed = true;
+			removed.add( slot.value );
+		}
+		nextRemove( from, removed );
+	}
+
+	private void sourcePermutated( ListChangeListener.Change<? extends F> change )
+	{
+		int from = change.getFrom();
+		int to = change.getTo();
+		List<Slot> values = slots.removeRange( from, to );
+		List<Slot> permutated = new ArrayList<>( values );
+		int[] permutation = new int[to - from];
+		for( int i = from; i < to; i++ )
+		{
+			permutation[i - from] = change.getPermutation( i );
+			permutated.set( permutation[i - from] - from, values.get( i - from ) );
+		}
+		int[] weights = new int[to - from];
+		Arrays.fill( weights, 1 );
+		setNodes( slots.insertAll( from, permutated, weights ) );
+		nextPermutation( from, to, permutation );
+	}
+
+	private void setNodes( List<IndexedTree.Node<Slot>> nodes )
+	{
+		for( IndexedTree.Node<Slot> node : nodes )
+		{
+			node.getValue().node = node;
+		}
+	}
+
+	/**
+	 * The position of a source element in this list, which also computes the transformed element.
+	 */
+	private final class Slot implements Runnable
+	{
+		private final F element;
+		private T value = placeholder;
+		private IndexedTree.Node<Slot> node;
+		private volatile boolean removed = false;
+		private volatile boolean failed = false;
+		private T result;
+
+		private Slot( F element )
+		{
+			this.element = element;
+		}
+
+		@Override
+		public void run()
+		{
+			if( removed )
+			{
+				return;
+			}
+			T transformed;
+			try
+			{
+				transformed = function.apply( element );
+			}
+			catch( RuntimeException e )
+			{
+				failed = true;
+				reportFailure( e );
+				return;
+			}
+			synchronized( completed )
+			{
+				result = transformed;
+				completed.add( this );
+			}
+			dispatcher.dispatch( AsyncTransformedList.this );
+		}
+	}
+}
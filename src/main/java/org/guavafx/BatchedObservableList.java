@@ -0,0 +1,196 @@
+/*
+ * Copyright 2013 SmartBear Software
+ *
+ * Licensed under the EUPL, Version 1.1 or - as soon they will be approved by the European Commission - subsequent
+ * versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is
+ * distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the Licence for the specific language governing permissions and limitations
+ * under the Licence.
+ */
+package org.guavafx;
+
+import java.util.Collection;
+
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import javafx.collections.WeakListChangeListener;
+
+/**
+ * A modifiable view of an ObservableList which can collapse many modifications into a single change, as created by
+ * ObservableLists.batched().
+ *
+ * Reads and modifications are delegated to the underlying list. Outside of a batch, its changes are forwarded as they
+ * are. Between beginChange() and endChange(), or during runBatch(), its changes are instead recorded, and reported as
+ * one compound change when the outermost batch ends, so that listeners, e.g. the lists derived from this one, are
+ * notified once per batch rather than once per modification. Batches must be started and ended on the thread which
+ * modifies the list.
+ */
+public final class BatchedObservableList<E> extends DerivedObservableList<E>
+{
+	private final ObservableList<E> source;
+
+	private final ListChangeListener<E> sourceListener = new ListChangeListener<E>()
+	{
+		@Override
+		public void onChanged( ListChangeListener.Change<? extends E> change )
+		{
+			recordSourceChange( change );
+			beginChange();
+			nextChange( change, 0 );
+			endChange();
+		}
+	};
+
+	BatchedObservableList( ObservableList<E> source )
+	{
+		this.source = source;
+		source.addListener( new WeakListChangeListener<>( sourceListener ) );
+	}
+
+	/**
+	 * Starts a batch. Batches can be nested, and the changes are reported when the outermost batch ends.
+	 */
+	@Override
+	public void beginChange()
+	{
+		super.beginChange();
+	}
+
+	/**
+	 * Ends a batch, reporting all changes made since the outermost batch began as a single change. Fails with an
+	 * IllegalStateException if no batch has been started.
+	 */
+	@Override
+	public void endChange()
+	{
+		super.endChange();
+	}
+
+	/**
+	 * Runs the given task as a batch, ending the batch even if the task fails.
+	 *
+	 * @param batch
+	 */
+	public void runBatch( Runnable batch )
+	{
+		beginChange();
+		try
+		{
+			batch.run();
+		}
+		finally
+		{
+			endChange();
+		}
+	}
+
+	@Override
+	public E get( int index )
+	{
+		return source.get( index );
+	}
+
+	@Override
+	public int size()
+	{
+		return source.size();
+	}
+
+	/*
+		Modifications are delegated to the underlying list.
+	 */
+
+	@Override
+	public E set( int index, E element )
+	{
+		return source.set( index, element );
+	}
+
+	@Override
+	public void add( int index, E element )
+	{
+		source.add( index, element );
+	}
+
+	@Override
+	public E remove( int index )
+	{
+		return source.remove( index );
+	}
+
+	@Override
+	public boolean addAll( Collection<? extends E> collection )
+	{
+		return source.addAll( collection );
+	}
+
+	@Override
+	public boolean addAll( int index, Collection<? extends E> collection )
+	{
+		return source.addAll( index, collection );
+	}
+
+	@Override
+	public boolean removeAll( Collection<?> collection )
+	{
+		return source.removeAll( collection );
+	}
+
+	@Override
+	public boolean retainAll( Collection<?> collection )
+	{
+		return source.retainAll( collection );
+	}
+
+	@Override
+	public void clear()
+	{
+		source.clear();
+	}
+
+	@Override
+	@SuppressWarnings( "unchecked" )
+	public boolean addAll( E... elements )
+	{
+		return source.addAll( elements );
+	}
+
+	@Override
+	@SuppressWarnings( "unchecked" )
+	public boolean setAll( E... elements )
+	{
+		return source.setAll( elements );
+	}
+
+	@Override
+	public boolean setAll( Collection<? extends E> collection )
+	{
+		return source.setAll( collection );
+	}
+
+	@Override
+	@SuppressWarnings( "unchecked" )
+	public boolean removeAll( E... elements )
+	{
+		return source.removeAll( elements );
+	}
+
+	@Override
+	@SuppressWarnings( "unchecked" )
+	public boolean retainAll( E... elements )
+	{
+		return source.retainAll( elements );
+	}
+
+	@Override
+	public void remove( int from, int to )
+	{
+		source.remove( from, to );
+	}
+}
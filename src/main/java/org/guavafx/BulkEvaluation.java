@@ -0,0 +1,205 @@
+/*
+ * Copyright 2013 SmartBear Software
+ *
+ * Licensed under the EUPL, Version 1.1 or - as soon they will be approved by the European Commission - subsequent
+ * versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is
+ * distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the Licence for the specific language governing permissions and limitations
+ * under the Licence.
+ */
+package org.guavafx;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.google.common.base.Function;
+import com.google.common.base.Predicate;
+
+/**
+ * Decides how ObservableLists.filter() and transform() evaluate their predicate or function for the elements added to
+ * the source list by a single change.
+ *
+ * By default, elements are evaluated one by one on the thread changing the source list. Using parallel(), added ranges
+ * of at least threshold elements are instead split across a ForkJoinPool, and the results are reassembled in order
+ * before being published as one change. Small changes stay serial. The predicate or function must be thread safe to be
+ * used in parallel.
+ */
+public final class BulkEvaluation
+{
+	/**
+	 * Smallest number of elements evaluated by a single fork-join task.
+	 */
+	private static final int MIN_CHUNK_SIZE = 256;
+
+	private static final BulkEvaluation SERIAL = new BulkEvaluation( null, Integer.MAX_VALUE );
+
+	private final ForkJoinPool pool;
+	private final int threshold;
+
+	private BulkEvaluation( ForkJoinPool pool, int threshold )
+	{
+		this.pool = pool;
+		this.threshold = threshold;
+	}
+
+	/**
+	 * Returns the default, which evaluates all elements serially.
+	 *
+	 * @return
+	 */
+	public static BulkEvaluation serial()
+	{
+		return SERIAL;
+	}
+
+	/**
+	 * Evaluates added ranges of at least threshold elements in parallel, using a shared ForkJoinPool with one thread
+	 * per processor.
+	 *
+	 * @param threshold
+	 * @return
+	 */
+	public static BulkEvaluation parallel( int threshold )
+	{
+		return parallel( DefaultPool.INSTANCE, threshold );
+	}
+
+	/**
+	 * Evaluates added ranges of at least threshold elements in parallel, using the given ForkJoinPool.
+	 *
+	 * @param pool
+	 * @param threshold
+	 * @return
+	 */
+	public static BulkEvaluation parallel( ForkJoinPool pool, int threshold )
+	{
+		checkArgument( threshold > 0, "threshold must be positive" );
+		return new BulkEvaluation( checkNotNull( pool ), threshold );
+	}
+
+	public int getThreshold()
+	{
+		return threshold;
+	}
+
+	/**
+	 * Applies the function to each of the elements, returning the results in order.
+	 */
+	@SuppressWarnings( "unchecked" )
+	<F, T> List<T> apply( List<? extends F> elements, final Function<? super F, ? extends T> function )
+	{
+		final Object[] values = elements.toArray();
+		evaluate( values.length, new Body()
+		{
+			@Override
+			public void evaluate( int index )
+			{
+				values[index] = function.apply( ( F )values[index] );
+			}
+		} );
+		return ( List<T> )Arrays.asList( values );
+	}
+
+	/**
+	 * Evaluates the predicate for each of the elements, returning 1 for the elements which satisfy it and 0 for the
+	 * others.
+	 */
+	@SuppressWarnings( "unchecked" )
+	<E> int[] weigh( List<? extends E> elements, final Predicate<? super E> predicate )
+	{
+		final Object[] values = elements.toArray();
+		final int[] weights = new int[values.length];
+		evaluate( values.length, new Body()
+		{
+			@Override
+			public void evaluate( int index )
+			{
+				weights[index] = predicate.apply( ( E )values[index] ) ? 1 : 0;
+			}
+		} );
+		return weights;
+	}
+
+	private void evaluate( int size, Body body )
+	{
+		if( size < threshold )
+		{
+			for( int i = 0; i < size; i++ )
+			{
+				body.evaluate( i );
+			}
+		}
+		else
+		{
+			int chunkSize = Math.max( MIN_CHUNK_SIZE, size / ( pool.getParallelism() * 4 ) );
+			pool.invoke( new Chunk( body, 0, size, chunkSize ) );
+		}
+	}
+
+	@Override
+	public String toString()
+	{
+		return pool == null ? "BulkEvaluation{serial}" : "BulkEvaluation{parallel, threshold=" + threshold + "}";
+	}
+
+	private interface Body
+	{
+		void evaluate( int index );
+	}
+
+	/**
+	 * Evaluates a range of elements, splitting it in halves until it is small enough.
+	 */
+	@SuppressWarnings( "serial" )
+	private static final class Chunk extends RecursiveAction
+	{
+		private final Body body;
+		private final int from;
+		private final int to;
+		private final int chunkSize;
+
+		private Chunk( Body body, int from, int to, int chunkSize )
+		{
+			this.body = body;
+			this.from = from;
+			this.to = to;
+			this.chunkSize = chunkSize;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if( to - from <= chunkSize )
+			{
+				for( int i = from; i < to; i++ )
+				{
+					body.evaluate( i );
+				}
+			}
+			else
+			{
+				int middle = ( from + to ) >>> 1;
+				invokeAll( new Chunk( body, from, middle, chunkSize ), new Chunk( body, middle, to, chunkSize ) );
+			}
+		}
+	}
+
+	/**
+	 * Lazily created pool used by parallel( threshold ).
+	 */
+	private static class DefaultPool
+	{
+		private static final ForkJoinPool INSTANCE = new ForkJoinPool();
+	}
+}
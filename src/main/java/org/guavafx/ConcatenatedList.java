@@ -0,0 +1,319 @@
+/*
+ * Copyright 2013 SmartBear Software
+ *
+ * Licensed under the EUPL, Version 1.1 or - as soon they will be approved by the European Commission - subsequent
+ * versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is
+ * distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the Licence for the specific language governing permissions and limitations
+ * under the Licence.
+ */
+package org.guavafx;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import javafx.collections.WeakListChangeListener;
+
+import com.google.common.base.Function;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Ordering;
+
+/**
+ * An ObservableList containing the elements of all the lists obtained by mapping each element of a source list to an
+ * ObservableList, in order, as created by ObservableLists.concat() (where each element is a list, mapped to itself) and
+ * flatMap().
+ *
+ * The mapping function is applied once per added or updated element. An updated element which maps to a different
+ * list is reported as replacing the elements of the old list with those of the new one.
+ *
+ * Each sublist is stored in an IndexedTree weighted by its size, so the offset of a sublist is found in O(log k). Every
+ * sublist is listened to separately, and its changes are forwarded with shifted indexes (once for each occurrence, if
+ * the same sublist occurs several times). Sublists being added to or removed from the outer list are reported as adding
+ * or removing their elements.
+ *
+ * The list is lazy, see LazyDerivedList.
+ */
+final class ConcatenatedList<F, T> extends LazyDerivedList<T>
+{
+	private final IndexedTree<Segment> segments = new IndexedTree<>();
+	private final Map<ObservableList<? extends T>, SubList> subLists = Maps.newIdentityHashMap();
+	private final ObservableList<? extends F> source;
+	private final Function<? super F, ? extends ObservableList<? extends T>> mapping;
+
+	private final ListChangeListener<F> sourceListener = new ListChangeListener<F>()
+	{
+		@Override
+		public void onChanged( ListChangeListener.Change<? extends F> change )
+		{
+			if( !isObserved() )
+			{
+				return;
+			}
+			recordSourceChange( change );
+			beginChange();
+			while( change.next() )
+			{
+				if( change.wasPermutated() )
+				{
+					sourcePermutated( change );
+				}
+				else if( change.wasUpdated() )
+				{
+					for( int i = change.getFrom(); i < change.getTo(); i++ )
+					{
+						sourceUpdated( i, change.getList().get( i ) );
+					}
+				}
+				else
+				{
+					if( change.wasRemoved() )
+					{
+						sourceRemoved( change.getFrom(), change.getFrom() + change.getRemovedSize() );
+					}
+					if( change.wasAdded() )
+					{
+						sourceAdded( change.getFrom(), change.getAddedSubList() );
+					}
+				}
+			}
+			endChange();
+		}
+	};
+	private final ListChangeListener<F> weakSourceListener = new WeakListChangeListener<>( sourceListener );
+
+	ConcatenatedList( ObservableList<? extends F> source,
+			Function<? super F, ? extends ObservableList<? extends T>> mapping )
+	{
+		this.source = source;
+		this.mapping = mapping;
+	}
+
+	@Override
+	public T get( int index )
+	{
+		validate();
+		IndexedTree.Node<Segment> node = segments.nodeAtWeight( index );
+		return node.getValue().subList.list.get( index - segments.weightBefore( node ) );
+	}
+
+	@Override
+	public int size()
+	{
+		validate();
+		return segments.totalWeight();
+	}
+
+	@Override
+	protected void connect()
+	{
+		source.addListener( weakSourceListener );
+		sourceAdded( 0, source );
+	}
+
+	@Override
+	protected void disconnect()
+	{
+		source.removeListener( weakSourceListener );
+		for( SubList subList : subLists.values() )
+		{
+			subList.list.removeListener( subList.weakListener );
+		}
+		subLists.clear();
+		segments.clear();
+	}
+
+	private void sourceAdded( int from, List<? extends F> added )
+	{
+		listsAdded( from, Lists.transform( added, mapping ) );
+	}
+
+	private void listsAdded( int from, List<? extends ObservableList<? extends T>> added )
+	{
+		List<Segment> newSegments = new ArrayList<>( added.size() );
+		int[] weights = new int[added.size()];
+		int count = 0;
+		for( ObservableList<? extends T> list : added )
+		{
+			SubList subList = subLists.get( list );
+			if( subList == null )
+			{
+				subList = new SubList( list );
+				subLists.put( list, subList );
+			}
+			weights[newSegments.size()] = list.size();
+			count += list.size();
+			newSegments.add( new Segment( subList ) );
+		}
+
+		List<IndexedTree.Node<Segment>> nodes = segments.insertAll( from, newSegments, weights );
+		for( IndexedTree.Node<Segment> node : nodes )
+		{
+			node.getValue().node = node;
+			node.getValue().subList.occurrences.add( node.getValue() );
+		}
+
+		if( count > 0 )
+		{
+			int offset = segments.weightBefore( from );
+			nextAdd( offset, offset + count );
+		}
+	}
+
+	private void sourceRemoved( int from, int to )
+	{
+		int offset = segments.weightBefore( from );
+		List<T> removed = new ArrayList<>();
+		for( Segment segment : segments.removeRange( from, to ) )
+		{
+			SubList subList = segment.subList;
+			subList.occurrences.remove( segment );
+			if( subList.occurrences.isEmpty() )
+			{
+				subList.list.removeListener( subList.weakListener );
+				subLists.remove( subList.list );
+			}
+			removed.addAll( subList.list );
+		}
+
+		if( !removed.isEmpty() )
+		{
+			nextRemove( offset, removed );
+		}
+	}
+
+	private void sourceUpdated( int index, F element )
+	{
+		ObservableList<? extends T> list = mapping.apply( element );
+		if( segments.get( index ).subList.list != list )
+		{
+			sourceRemoved( index, index + 1 );
+			listsAdded( index, Collections.singletonList( list ) );
+		}
+	}
+
+	private void sourcePermutated( ListChangeListener.Change<? extends F> change )
+	{
+		int from = change.getFrom();
+		int to = change.getTo();
+		int offset = segments.weightBefore( from );
+
+		List<Segment> values = segments.removeRange( from, to );
+		List<Segment> permutated = new ArrayList<>( values );
+		int[] weights = new int[to - from];
+		for( int i = from; i < to; i++ )
+		{
+			Segment segment = values.get( i - from );
+			permutated.set( change.getPermutation( i ) - from, segment );
+			weights[change.getPermutation( i ) - from] = segment.subList.list.size();
+		}
+		List<IndexedTree.Node<Segment>> nodes = segments.insertAll( from, permutated, weights );
+		for( IndexedTree.Node<Segment> node : nodes )
+		{
+			node.getValue().node = node;
+		}
+
+		int[] newOffsets = new int[to - from];
+		for( int i = 0, position = offset; i < weights.length; i++ )
+		{
+			newOffsets[i] = position;
+			position += weights[i];
+		}
+		int[] permutation = new int[segments.weightBefore( to ) - offset];
+		int position = 0;
+		for( int i = from; i < to; i++ )
+		{
+			int target = newOffsets[change.getPermutation( i ) - from];
+			for( int j = 0; j < values.get( i - from ).subList.list.size(); j++ )
+			{
+				permutation[position++] = target + j;
+			}
+		}
+		if( permutation.length > 0 )
+		{
+			nextPermutation( offset, offset + permutation.length, permutation );
+		}
+	}
+
+	/**
+	 * An occurrence of a sublist in the outer list, along with its node in the tree of segments.
+	 */
+	private final class Segment
+	{
+		private final SubList subList;
+		private IndexedTree.Node<Segment> node;
+
+		private Segment( SubList subList )
+		{
+			this.subList = subList;
+		}
+	}
+
+	/**
+	 * A distinct sublist, which may occur several times in the outer list. All occurrences share a single listener, so
+	 * that a change to the sublist is reported as one change.
+	 */
+	private final class SubList
+	{
+		private final ObservableList<? extends T> list;
+		private final List<Segment> occurrences = new ArrayList<>( 1 );
+
+		private final ListChangeListener<T> listener = new ListChangeListener<T>()
+		{
+			@Override
+			public void onChanged( ListChangeListener.Change<? extends T> change )
+			{
+				if( !isObserved() )
+				{
+					return;
+				}
+				for( Segment segment : occurrences )
+				{
+					segments.setWeight( segment.node, list.size() );
+				}
+
+				recordSourceChange( change );
+				beginChange();
+				for( Segment segment : sortedOccurrences() )
+				{
+					change.reset();
+					nextChange( change, segments.weightBefore( segment.node ) );
+				}
+				endChange();
+			}
+		};
+		private final ListChangeListener<T> weakListener = new WeakListChangeListener<>( listener );
+
+		private SubList( ObservableList<? extends T> list )
+		{
+			this.list = list;
+			list.addListener( weakListener );
+		}
+
+		private List<Segment> sortedOccurrences()
+		{
+			if( occurrences.size() == 1 )
+			{
+				return occurrences;
+			}
+			return new Ordering<Segment>()
+			{
+				@Override
+				public int compare( Segment left, Segment right )
+				{
+					return Integer.compare( segments.indexOf( left.node ), segments.indexOf( right.node ) );
+				}
+			}.sortedCopy( occurrences );
+		}
+	}
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2013 SmartBear Software
+ *
+ * Licensed under the EUPL, Version 1.1 or - as soon they will be approved by the European Commission - subsequent
+ * versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is
+ * distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the Licence for the specific language governing permissions and limitations
+ * under the Licence.
+ */
+package org.guavafx;
+
+import java.util.Collections;
+import java.util.List;
+
+import javafx.beans.binding.IntegerBinding;
+import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import javafx.collections.WeakListChangeListener;
+
+import com.google.common.base.Predicate;
+
+/**
+ * An ObservableIntegerValue containing the number of elements of a source list which satisfy a condition, as created
+ * by ObservableLists.count().
+ *
+ * Whether each element satisfies the condition is stored as a weight of 1 or 0 in an IndexedTree, in the same way as
+ * FilteredList, so the condition is only evaluated for added and updated elements, and removing an element doesn't
+ * depend on it still satisfying the condition.
+ */
+final class CountBinding<E> extends IntegerBinding
+{
+	private final ObservableList<E> source;
+	private final Predicate<? super E> condition;
+	private final IndexedTree<Object> matches = new IndexedTree<>();
+
+	private final ListChangeListener<E> sourceListener = new ListChangeListener<E>()
+	{
+		@Override
+		public void onChanged( ListChangeListener.Change<? extends E> change )
+		{
+			while( change.next() )
+			{
+				int from = change.getFrom();
+				int to = change.getTo();
+				if( change.wasPermutated() )
+				{
+					int[] weights = new int[to - from];
+					for( int i = from; i < to; i++ )
+					{
+						weights[change.getPermutation( i ) - from] = matches.node( i ).getWeight();
+					}
+					matches.removeRange( from, to );
+					matches.insertAll( from, Collections.nCopies( weights.length, null ), weights );
+				}
+				else if( change.wasUpdated() )
+				{
+					for( int i = from; i < to; i++ )
+					{
+						matches.setWeight( matches.node( i ), evaluate( change.getList().get( i ) ) );
+					}
+				}
+				else
+				{
+					if( change.wasRemoved() )
+					{
+						matches.removeRange( from, from + change.getRemovedSize() );
+					}
+					if( change.wasAdded() )
+					{
+						sourceAdded( from, change.getAddedSubList() );
+					}
+				}
+			}
+			invalidate();
+		}
+	};
+	private final ListChangeListener<E> weakSourceListener = new WeakListChangeListener<>( sourceListener );
+
+	CountBinding( ObservableList<E> source, Predicate<? super E> condition )
+	{
+		this.source = source;
+		this.condition = condition;
+		sourceAdded( 0, source );
+		source.addListener( weakSourceListener );
+	}
+
+	@Override
+	protected int computeValue()
+	{
+		return matches.totalWeight();
+	}
+
+	@Override
+	public ObservableList<?> getDependencies()
+	{
+		return FXCollections.singletonObservableList( source );
+	}
+
+	@Override
+	public void dispose()
+	{
+		source.removeListener( weakSourceListener );
+	}
+
+	private void sourceAdded( int from, List<? extends E> added )
+	{
+		int[] weights = new int[added.size()];
+		int i = 0;
+		for( E element : added )
+		{
+			weights[i++] = evaluate( element );
+		}
+		matches.insertAll( from, Collections.nCopies( weights.length, null ), weights );
+	}
+
+	private int evaluate( E element )
+	{
+		return condition.apply( element ) ? 1 : 0;
+	}
+}
@@ -0,0 +1,318 @@
+/*
+ * Copyright 2013 SmartBear Software
+ *
+ * Licensed under the EUPL, Version 1.1 or - as soon they will be approved by the European Commission - subsequent
+ * versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is
+ * distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the Licence for the specific language governing permissions and limitations
+ * under the Licence.
+ */
+package org.guavafx;
+
+import static com.google.common.base.Preconditions.checkState;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import javafx.beans.InvalidationListener;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+
+import com.google.common.cache.CacheStats;
+
+/**
+ * Base class for the read only ObservableLists created by ObservableLists. Subclasses report their modifications
+ * between beginChange() and endChange(), and all modifications reported in between are delivered to the listeners as a
+ * single Change. Modifications reported outside of a change, e.g. while populating the list initially, are ignored.
+ *
+ * While Instrumentation is enabled, each outermost beginChange() and endChange() pair is recorded as a recompute.
+ */
+abstract class DerivedObservableList<E> extends AbstractList<E> implements ObservableList<E>
+{
+	private final List<InvalidationListener> invalidationListeners = new ArrayList<>();
+	private final List<ListChangeListener<? super E>> listChangeListeners = new ArrayList<>();
+	private final ListChangeBuilder<E> changeBuilder = new ListChangeBuilder<>( this );
+	private int changeDepth = 0;
+	private ListMetrics metrics = Instrumentation.enabled ? Instrumentation.created( this ) : null;
+	private long changeStart = 0;
+
+	protected void beginChange()
+	{
+		if( changeDepth++ == 0 && Instrumentation.enabled && metrics != null )
+		{
+			changeStart = System.nanoTime();
+		}
+	}
+
+	protected void endChange()
+	{
+		checkState( changeDepth > 0, "endChange() without a matching beginChange()" );
+		if( --changeDepth == 0 )
+		{
+			ListChangeListener.Change<E> change = changeBuilder.isEmpty() ? null : changeBuilder.build();
+			if( changeStart != 0 )
+			{
+				metrics.recordRecompute( System.nanoTime() - changeStart, change, size() );
+				changeStart = 0;
+			}
+			if( change != null )
+			{
+				fireChange( change );
+			}
+		}
+	}
+
+	/**
+	 * Records a change of a source list for Instrumentation.
+	 */
+	protected final void recordSourceChange( ListChangeListener.Change<?> change )
+	{
+		if( Instrumentation.enabled && metrics != null )
+		{
+			metrics.recordIncoming( change );
+		}
+	}
+
+	ListMetrics getMetrics()
+	{
+		return metrics;
+	}
+
+	void setMetrics( ListMetrics metrics )
+	{
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Returns the statistics of the cache used by the list, or null if it has none.
+	 */
+	CacheStats getCacheStats()
+	{
+		return null;
+	}
+
+	/**
+	 * Returns the number of updates of the list waiting to run on the FX thread, or -1 if the list is updated
+	 * synchronously.
+	 */
+	int getPendingUpdateCount()
+	{
+		return -1;
+	}
+
+	protected final void nextAdd( int from, int to )
+	{
+		if( changeDepth > 0 )
+			changeBuilder.nextReplace( from, Collections.<E> emptyList(), to - from );
+	}
+
+	protected final void nextRemove( int from, List<? extends E> removed )
+	{
+		if( changeDepth > 0 )
+			changeBuilder.nextReplace( from, removed, 0 );
+	}
+
+	protected final void nextRemove( int from, E removed )
+	{
+		if( changeDepth > 0 )
+			changeBuilder.nextReplace( from, Collections.singletonList( removed ), 0 );
+	}
+
+	protected final void nextReplace( int from, int to, List<? extends E> removed )
+	{
+		if( changeDepth > 0 )
+			changeBuilder.nextReplace( from, removed, to - from );
+	}
+
+	protected final void nextSet( int index, E old )
+	{
+		if( changeDepth > 0 )
+			changeBuilder.nextReplace( index, Collections.singletonList( old ), 1 );
+	}
+
+	protected final void nextPermutation( int from, int to, int[] permutation )
+	{
+		if( changeDepth > 0 )
+			changeBuilder.nextPermutation( from, to, permutation );
+	}
+
+	protected final void nextUpdate( int index )
+	{
+		if( changeDepth > 0 )
+			changeBuilder.nextUpdate( index );
+	}
+
+	/**
+	 * Reports all the sub-changes of a change to another list, with the indexes shifted by offset.
+	 */
+	protected final void nextChange( ListChangeListener.Change<? extends E> change, int offset )
+	{
+		while( change.next() )
+		{
+			int from = offset + change.getFrom();
+			int to = offset + change.getTo();
+			if( change.wasPermutated() )
+			{
+				int[] permutation = new int[to - from];
+				for( int i = change.getFrom(); i < change.getTo(); i++ )
+				{
+					permutation[i - change.getFrom()] = offset + change.getPermutation( i );
+				}
+				nextPermutation( from, to, permutation );
+			}
+			else if( change.wasUpdated() )
+			{
+				for( int i = from; i < to; i++ )
+				{
+					nextUpdate( i );
+				}
+			}
+			else
+			{
+				if( change.wasRemoved() )
+				{
+					nextRemove( from, change.getRemoved() );
+				}
+				if( change.wasAdded() )
+				{
+					nextAdd( from, to );
+				}
+			}
+		}
+	}
+
+	private void fireChange( ListChangeListener.Change<E> change )
+	{
+		for( InvalidationListener listener : new ArrayList<>( invalidationListeners ) )
+		{
+			listener.invalidated( this );
+		}
+		for( ListChangeListener<? super E> listener : new ArrayList<>( listChangeListeners ) )
+		{
+			change.reset();
+			listener.onChanged( change );
+		}
+	}
+
+	/**
+	 * Reports a failure of work done on a background thread, where there is no caller to throw it to, to the uncaught
+	 * exception handler of the current thread, without terminating the thread.
+	 */
+	protected static void reportFailure( Throwable failure )
+	{
+		Thread thread = Thread.currentThread();
+		thread.getUncaughtExceptionHandler().uncaughtException( thread, failure );
+	}
+
+	protected final boolean hasListeners()
+	{
+		return !invalidationListeners.isEmpty() || !listChangeListeners.isEmpty();
+	}
+
+	/**
+	 * Called when a listener is added to a list which had no listeners.
+	 */
+	protected void firstListenerAdded()
+	{
+	}
+
+	/**
+	 * Called when the last listener of the list is removed.
+	 */
+	protected void lastListenerRemoved()
+	{
+	}
+
+	@Override
+	public void addListener( InvalidationListener listener )
+	{
+		boolean first = !hasListeners();
+		invalidationListeners.add( listener );
+		if( first )
+		{
+			firstListenerAdded();
+		}
+	}
+
+	@Override
+	public void removeListener( InvalidationListener listener )
+	{
+		if( invalidationListeners.remove( listener ) && !hasListeners() )
+		{
+			lastListenerRemoved();
+		}
+	}
+
+	@Override
+	public void addListener( ListChangeListener<? super E> listener )
+	{
+		boolean first = !hasListeners();
+		listChangeListeners.add( listener );
+		if( first )
+		{
+			firstListenerAdded();
+		}
+	}
+
+	@Override
+	public void removeListener( ListChangeListener<? super E> listener )
+	{
+		if( listChangeListeners.remove( listener ) && !hasListeners() )
+		{
+			lastListenerRemoved();
+		}
+	}
+
+	/*
+		The list is read only.
+	 */
+
+	@Override
+	@SuppressWarnings( "unchecked" )
+	public boolean addAll( E... elements )
+	{
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	@SuppressWarnings( "unchecked" )
+	public boolean setAll( E... elements )
+	{
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public boolean setAll( Collection<? extends E> collection )
+	{
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	@SuppressWarnings( "unchecked" )
+	public boolean removeAll( E... elements )
+	{
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	@SuppressWarnings( "unchecked" )
+	public boolean retainAll( E... elements )
+	{
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public void remove( int from, int to )
+	{
+		throw new UnsupportedOperationException();
+	}
+}
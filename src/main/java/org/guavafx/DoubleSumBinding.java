@@ -0,0 +1,134 @@
+/*
+ * Copyright 2013 SmartBear Software
+ *
+ * Licensed under the EUPL, Version 1.1 or - as soon they will be approved by the European Commission - subsequent
+ * versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is
+ * distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the Licence for the specific language governing permissions and limitations
+ * under the Licence.
+ */
+package org.guavafx;
+
+import java.util.List;
+
+import javafx.beans.binding.DoubleBinding;
+import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import javafx.collections.WeakListChangeListener;
+
+/**
+ * An ObservableDoubleValue containing the sum of the double values of the elements of a source list, as created by
+ * ObservableLists.sumDouble(). Null elements count as zero.
+ *
+ * The sum is kept in primitive doubles, and only the added and removed elements of a change are visited, so each change
+ * costs O(change size) without boxing. Since the old values of updated elements are unknown, an update causes the sum
+ * to be recomputed from scratch.
+ */
+final class DoubleSumBinding extends DoubleBinding
+{
+	private final ObservableList<? extends Number> source;
+	// The sum is compensated for rounding errors, so that adding and later subtracting the same values doesn't drift.
+	private double sum;
+	private double compensation;
+
+	private final ListChangeListener<Number> sourceListener = new ListChangeListener<Number>()
+	{
+		@Override
+		public void onChanged( ListChangeListener.Change<? extends Number> change )
+		{
+			boolean updated = false;
+			while( change.next() )
+			{
+				if( change.wasUpdated() )
+				{
+					updated = true;
+				}
+				else if( !change.wasPermutated() )
+				{
+					List<? extends Number> removed = change.getRemoved();
+					for( int i = 0; i < removed.size(); i++ )
+					{
+						deduct( valueOf( removed.get( i ) ) );
+					}
+					List<? extends Number> list = change.getList();
+					for( int i = change.getFrom(); i < change.getTo(); i++ )
+					{
+						accumulate( valueOf( list.get( i ) ) );
+					}
+				}
+			}
+			if( updated )
+			{
+				recompute();
+			}
+			invalidate();
+		}
+	};
+	private final ListChangeListener<Number> weakSourceListener = new WeakListChangeListener<>( sourceListener );
+
+	DoubleSumBinding( ObservableList<? extends Number> source )
+	{
+		this.source = source;
+		recompute();
+		source.addListener( weakSourceListener );
+	}
+
+	@Override
+	protected double computeValue()
+	{
+		return sum + compensation;
+	}
+
+	@Override
+	public ObservableList<?> getDependencies()
+	{
+		return FXCollections.singletonObservableList( source );
+	}
+
+	@Override
+	public void dispose()
+	{
+		source.removeListener( weakSourceListener );
+	}
+
+	private void recompute()
+	{
+		sum = 0;
+		compensation = 0;
+		for( int i = 0; i < source.size(); i++ )
+		{
+			accumulate( valueOf( source.get( i ) ) );
+		}
+	}
+
+	private void accumulate( double value )
+	{
+		double total = sum + value;
+		if( Math.abs( sum ) >= Math.abs( value ) )
+		{
+			compensation += ( sum - total ) + value;
+		}
+		else
+		{
+			compensation += ( value - total ) + sum;
+		}
+		sum = total;
+	}
+
+	private void deduct( double value )
+	{
+		accumulate( -value );
+	}
+
+	private static double valueOf( Number number )
+	{
+		return number == null ? 0 : number.doubleValue();
+	}
+}
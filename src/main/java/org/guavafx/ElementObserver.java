@@ -0,0 +1,144 @@
+/*
+ * Copyright 2013 SmartBear Software
+ *
+ * Licensed under the EUPL, Version 1.1 or - as soon they will be approved by the European Commission - subsequent
+ * versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is
+ * distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the Licence for the specific language governing permissions and limitations
+ * under the Licence.
+ */
+package org.guavafx;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javafx.beans.InvalidationListener;
+import javafx.beans.Observable;
+import javafx.beans.WeakInvalidationListener;
+import javafx.collections.ListChangeListener;
+
+import com.google.common.base.Function;
+
+/**
+ * Listens to the Observables extracted from each element of a source list, and reports the current index of an element
+ * when one of its Observables is invalidated.
+ *
+ * Each element gets its own listener, which is kept in an IndexedTree in source order and knows its own node, so the
+ * index of an invalidated element is found in O(log n). The owning list mirrors the structural changes of the source
+ * list to the observer, which attaches listeners to added elements and detaches them from removed ones.
+ */
+final class ElementObserver<E>
+{
+	/**
+	 * Receives the index of an element whose Observables have been invalidated.
+	 */
+	interface Callback
+	{
+		void elementInvalidated( int index );
+	}
+
+	private final IndexedTree<ElementListener> listeners = new IndexedTree<>();
+	private final Function<? super E, ? extends Observable[]> extractor;
+	private final Callback callback;
+
+	ElementObserver( Function<? super E, ? extends Observable[]> extractor, Callback callback )
+	{
+		this.extractor = extractor;
+		this.callback = callback;
+	}
+
+	void added( int from, List<? extends E> added )
+	{
+		List<ElementListener> newListeners = new ArrayList<>( added.size() );
+		for( E element : added )
+		{
+			newListeners.add( new ElementListener( extractor.apply( element ) ) );
+		}
+		setNodes( listeners.insertAll( from, newListeners, ones( newListeners.size() ) ) );
+	}
+
+	void removed( int from, int to )
+	{
+		for( ElementListener listener : listeners.removeRange( from, to ) )
+		{
+			listener.detach();
+		}
+	}
+
+	void permutated( ListChangeListener.Change<?> change )
+	{
+		int from = change.getFrom();
+		int to = change.getTo();
+		List<ElementListener> values = listeners.removeRange( from, to );
+		List<ElementListener> permutated = new ArrayList<>( values );
+		for( int i = from; i < to; i++ )
+		{
+			permutated.set( change.getPermutation( i ) - from, values.get( i - from ) );
+		}
+		setNodes( listeners.insertAll( from, permutated, ones( permutated.size() ) ) );
+	}
+
+	void clear()
+	{
+		removed( 0, listeners.size() );
+	}
+
+	private void setNodes( List<IndexedTree.Node<ElementListener>> nodes )
+	{
+		for( IndexedTree.Node<ElementListener> node : nodes )
+		{
+			node.getValue().node = node;
+		}
+	}
+
+	private static int[] ones( int size )
+	{
+		int[] weights = new int[size];
+		Arrays.fill( weights, 1 );
+		return weights;
+	}
+
+	/**
+	 * The listener of a single element, attached to all the Observables extracted from it.
+	 */
+	private final class ElementListener implements InvalidationListener
+	{
+		private final Observable[] observables;
+		private final WeakInvalidationListener weakListener = new WeakInvalidationListener( this );
+		private IndexedTree.Node<ElementListener> node;
+
+		private ElementListener( Observable[] observables )
+		{
+			this.observables = observables;
+			for( Observable observable : observables )
+			{
+				observable.addListener( weakListener );
+			}
+		}
+
+		@Override
+		public void invalidated( Observable observable )
+		{
+			if( node != null )
+			{
+				callback.elementInvalidated( listeners.indexOf( node ) );
+			}
+		}
+
+		private void detach()
+		{
+			for( Observable observable : observables )
+			{
+				observable.removeListener( weakListener );
+			}
+			node = null;
+		}
+	}
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright 2013 SmartBear Software
+ *
+ * Licensed under the EUPL, Version 1.1 or - as soon they will be approved by the European Commission - subsequent
+ * versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is
+ * distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the Licence for the specific language governing permissions and limitations
+ * under the Licence.
+ */
+package org.guavafx;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javafx.beans.InvalidationListener;
+import javafx.beans.Observable;
+import javafx.beans.WeakInvalidationListener;
+import javafx.beans.value.ObservableValue;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import javafx.collections.WeakListChangeListener;
+
+import com.google.common.base.Function;
+import com.google.common.base.Predicate;
+
+/**
+ * An ObservableList containing the elements of a source list which satisfy a predicate.
+ *
+ * Each element of the source list is weighted by whether it passes the predicate, see WeightedList. Source changes
+ * are translated into the corresponding minimal changes of the filtered list, evaluating the predicate only for added
+ * and updated elements. The predicate is evaluated for the elements added by a change as described by a BulkEvaluation.
+ * Optionally, the elements are observed through an ElementObserver, re-evaluating the predicate for a single element
+ * when its properties change. If the predicate is an ObservableValue, all elements are re-filtered when it changes,
+ * or only those in the filtered list if the new predicate is a NarrowingPredicate which narrows the previous one.
+ *
+ * The list is lazy, see LazyDerivedList.
+ */
+final class FilteredList<E> extends WeightedList<E>
+{
+	private Predicate<? super E> predicate;
+	private final ObservableValue<? extends Predicate<? super E>> predicateValue;
+	private final BulkEvaluation bulkEvaluation;
+
+	private final ObservableList<E> source;
+
+	private final ListChangeListener<E> sourceListener = new ListChangeListener<E>()
+	{
+		@Override
+		public void onChanged( ListChangeListener.Change<? extends E> change )
+		{
+			if( !isObserved() )
+			{
+				return;
+			}
+			recordSourceChange( change );
+			beginChange();
+			while( change.next() )
+			{
+				if( change.wasPermutated() )
+				{
+					sourcePermutated( change );
+				}
+				else if( change.wasUpdated() )
+				{
+					sourceUpdated( change.getList(), change.getFrom(), change.getTo() );
+				}
+				else
+				{
+					if( change.wasRemoved() )
+					{
+						sourceRemoved( change.getFrom(), change.getFrom() + change.getRemovedSize() );
+					}
+					if( change.wasAdded() )
+					{
+						sourceAdded( change.getFrom(), change.getAddedSubList() );
+					}
+				}
+			}
+			endChange();
+		}
+	};
+	private final ListChangeListener<E> weakSourceListener = new WeakListChangeListener<>( sourceListener );
+
+	private final InvalidationListener predicateListener = new InvalidationListener()
+	{
+		@Override
+		public void invalidated( Observable observable )
+		{
+			Predicate<? super E> previous = predicate;
+			predicate = checkNotNull( predicateValue.getValue(), "predicate" );
+			if( isObserved() )
+			{
+				refilter( previous );
+			}
+		}
+	};
+
+	private final ElementObserver<E> elementObserver;
+
+	FilteredList( ObservableList<E> source, Predicate<? super E> predicate, BulkEvaluation bulkEvaluation )
+	{
+		this( source, predicate, bulkEvaluation, null );
+	}
+
+	/**
+	 * Creates a list which also re-evaluates the predicate for an element whenever one of the Observables extracted
+	 * from it is invalidated, unless the extractor is null.
+	 */
+	FilteredList( ObservableList<E> source, Predicate<? super E> predicate, BulkEvaluation bulkEvaluation,
+			Function<? super E, ? extends Observable[]> extractor )
+	{
+		this( source, predicate, null, bulkEvaluation, extractor );
+	}
+
+	/**
+	 * Creates a list which re-filters all elements whenever the predicate changes.
+	 */
+	FilteredList( ObservableList<E> source, ObservableValue<? extends Predicate<? super E>> predicateValue,
+			BulkEvaluation bulkEvaluation )
+	{
+		this( source, predicateValue.getValue(), predicateValue, bulkEvaluation, null );
+		predicateValue.addListener( new WeakInvalidationListener( predicateListener ) );
+	}
+
+	private FilteredList( ObservableList<E> source, Predicate<? super E> predicate,
+			ObservableValue<? extends Predicate<? super E>> predicateValue, BulkEvaluation bulkEvaluation,
+			Function<? super E, ? extends Observable[]> extractor )
+	{
+		this.source = source;
+		this.predicate = checkNotNull( predicate, "predicate" );
+		this.predicateValue = predicateValue;
+		this.bulkEvaluation = bulkEvaluation;
+		this.elementObserver = extractor == null ? null : new ElementObserver<E>( extractor,
+				new ElementObserver.Callback()
+				{
+					@Override
+					public void elementInvalidated( int index )
+					{
+						if( isObserved() )
+						{
+							beginChange();
+							sourceUpdated( FilteredList.this.source, index, index + 1 );
+							endChange();
+						}
+					}
+				} );
+	}
+
+	@Override
+	protected void connect()
+	{
+		source.addListener( weakSourceListener );
+		sourceAdded( 0, source );
+	}
+
+	@Override
+	protected void disconnect()
+	{
+		source.removeListener( weakSourceListener );
+		elements.clear();
+		if( elementObserver != null )
+		{
+			elementObserver.clear();
+		}
+	}
+
+	private void sourceAdded( int from, List<? extends E> added )
+	{
+		insertElements( from, added, bulkEvaluation.weigh( added, predicate ) );
+		if( elementObserver != null )
+		{
+			elementObserver.added( from, added );
+		}
+	}
+
+	private void sourceRemoved( int from, int to )
+	{
+		removeElements( from, to );
+		if( elementObserver != null )
+		{
+			elementObserver.removed( from, to );
+		}
+	}
+
+	private void sourceUpdated( List<? extends E> source, int from, int to )
+	{
+		for( int i = from; i < to; i++ )
+		{
+			E element = source.get( i );
+			updateElement( i, element, predicate.apply( element ) );
+		}
+	}
+
+	/**
+	 * Re-evaluates the current predicate, reporting the elements which enter and leave the filtered list. If the
+	 * predicate narrows the previous one, only the elements currently in the filtered list are re-evaluated.
+	 */
+	private void refilter( Predicate<? super E> previous )
+	{
+		boolean narrowing = predicate instanceof NarrowingPredicate
+				&& ( ( NarrowingPredicate<?> )predicate ).narrows( previous );
+		List<IndexedTree.Node<E>> nodes;
+		if( narrowing )
+		{
+			nodes = new ArrayList<>( elements.totalWeight() );
+			for( int i = 0; i < elements.totalWeight(); i++ )
+			{
+				nodes.add( elements.nodeAtWeight( i ) );
+			}
+		}
+		else
+		{
+			nodes = elements.nodes();
+		}
+		List<E> values = new ArrayList<>( nodes.size() );
+		for( IndexedTree.Node<E> node : nodes )
+		{
+			values.add( node.getValue() );
+		}
+		int[] weights = bulkEvaluation.weigh( values, predicate );
+
+		beginChange();
+		int viewIndex = 0;
+		for( int i = 0; i < weights.length; i++ )
+		{
+			setIncluded( nodes.get( i ), viewIndex, weights[i] > 0 );
+			viewIndex += weights[i];
+		}
+		endChange();
+	}
+
+	private void sourcePermutated( ListChangeListener.Change<? extends E> change )
+	{
+		permutateElements( change );
+		if( elementObserver != null )
+		{
+			elementObserver.permutated( change );
+		}
+	}
+}
@@ -2,6 +2,7 @@ package org.guavafx;
 
 import com.google.common.base.Function;
 import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableList;
 import javafx.beans.InvalidationListener;
 import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
@@ -15,28 +16,71 @@ import java.util.ListIterator;
  * An immutable wrapper of ObservableList, whose only purpose is to provide a fluent API for the methods provided by
  * ObservableLists.java.
  *
+ * Chained filter() and transform() calls don't create a derived list per call. Instead, each call describes one more
+ * stage of a pipeline on the same source list, and the stages are fused into a single derived list, which is only
+ * created once the list is actually used.
+ *
  * @author henrik.olsson
  */
 
 public class FluentObservableList implements ObservableList
 {
+    private final ObservableList source;
+    private final ImmutableList<FusedList.Stage> stages;
     private ObservableList wrappedList;
 
     FluentObservableList( ObservableList wrappedList )
     {
+        this( wrappedList, ImmutableList.<FusedList.Stage> of() );
         this.wrappedList = wrappedList;
     }
 
+    FluentObservableList( ObservableList source, ImmutableList<FusedList.Stage> stages )
+    {
+        this.source = source;
+        this.stages = stages;
+    }
+
     public FluentObservableList filter( Predicate predicate )
     {
-        return new FluentObservableList( ObservableLists.filter( wrappedList, predicate ) );
+        return append( FusedList.Stage.filter( predicate ) );
     }
 
     public FluentObservableList transform( Function function )
     {
-        return new FluentObservableList( ObservableLists.transform(wrappedList, function) );
+        return append( FusedList.Stage.transform( function ) );
     }
 
+	private FluentObservableList append( FusedList.Stage stage )
+	{
+		return new FluentObservableList( source, ImmutableList.<FusedList.Stage> builder().addAll( stages ).add( stage )
+				.build() );
+	}
+
+	/**
+	 * Registers the list described by the stages so far with Instrumentation under the given name. Stages added
+	 * afterwards describe a new list, which needs to be named separately.
+	 *
+	 * @param name
+	 * @return
+	 */
+	public FluentObservableList named( String name )
+	{
+		return Instrumentation.name( this, name );
+	}
+
+	/**
+	 * Returns the derived list, creating it on first use.
+	 */
+	synchronized ObservableList list()
+	{
+		if( wrappedList == null )
+		{
+			wrappedList = new FusedList( source, stages );
+		}
+		return wrappedList;
+	}
+
 	/*
 		Delegating methods
 	 */
@@ -44,79 +88,79 @@ public class FluentObservableList implements ObservableList
 	@Override
 	public void addListener( ListChangeListener listChangeListener )
 	{
-		wrappedList.addListener( listChangeListener );
+		list().addListener( listChangeListener );
 	}
 
 	@Override
 	public void removeListener( ListChangeListener listChangeListener )
 	{
-		wrappedList.removeListener( listChangeListener );
+		list().removeListener( listChangeListener );
 	}
 
 	@Override
 	public boolean addAll( Object... objects )
 	{
-		return wrappedList.addAll( objects );
+		return list().addAll( objects );
 	}
 
 	@Override
 	public boolean setAll( Object... objects )
 	{
-		return wrappedList.setAll( objects );
+		return list().setAll( objects );
 	}
 
 	@Override
 	public boolean setAll( Collection collection )
 	{
-		return wrappedList.setAll( collection );
+		return list().setAll( collection );
 	}
 
 	@Override
 	public boolean removeAll( Object... objects )
 	{
-		return wrappedList.removeAll( objects );
+		return list().removeAll( objects );
 	}
 
 	@Override
 	public boolean retainAll( Object... objects )
 	{
-		return wrappedList.retainAll( objects );
+		return list().retainAll( objects );
 	}
 
 	@Override
 	public void remove( int i, int i2 )
 	{
-		wrappedList.remove( i, i2 );
+		list().remove( i, i2 );
 	}
 
 	@Override
 	public int size()
 	{
-		return wrappedList.size();
+		return list().size();
 	}
 
 	@Override
 	public boolean isEmpty()
 	{
-		return wrappedList.isEmpty();
+		return list().isEmpty();
 	}
 
 	@Override
 	public boolean contains( Object o )
 	{
-		return wrappedList.contains( o );
+		return list().contains( o );
 	}
 
 	@Override
 	public Iterator iterator()
 	{
-		return wrappedList.iterator();
+		return list().iterator();
 	}
 
 	@Override
 	public Object[] toArray()
 	{
-		return wrappedList.toArray();
+		return list().toArray();
 	}
 
 	@Override
@@ -128,126 +172,126 @@ public class FluentObservableList implements ObservableList
 	@Override
 	public boolean add( Object o )
 	{
-		return wrappedList.add( o );
+		return list().add( o );
 	}
 
 	@Override
 	public boolean remove( Object o )
 	{
-		return wrappedList.remove( o );
+		return list().remove( o );
 	}
 
 	@Override
 	public boolean containsAll( Collection c )
 	{
-		return wrappedList.containsAll( c );
+		return list().containsAll( c );
 	}
 
 	@Override
 	public boolean addAll( Collection c )
 	{
-		return wrappedList.addAll( c );
+		return list().addAll( c );
 	}
 
 	@Override
 	public boolean addAll( int index, Collection c )
 	{
-		return wrappedList.addAll( index, c );
+		return list().addAll( index, c );
 	}
 
 	@Override
 	public boolean removeAll( Collection c )
 	{
-		return wrappedList.removeAll( c );
+		return list().removeAll( c );
 	}
 
 	@Override
 	public boolean retainAll( Collection c )
 	{
-		return wrappedList.retainAll( c );
+		return list().retainAll( c );
 	}
 
 	@Override
 	public void clear()
 	{
-		wrappedList.clear();
+		list().clear();
 	}
 
 	@Override
 	public boolean equals( Object o )
 	{
-		return wrappedList.equals( o );
+		return list().equals( o );
 	}
 
 	@Override
 	public int hashCode()
 	{
-		return wrappedList.hashCode();
+		return list().hashCode();
 	}
 
 	@Override
 	public Object get( int index )
 	{
-		return wrappedList.get( index );
+		return list().get( index );
 	}
 
 	@Override
 	public Object set( int index, Object element )
 	{
-		return wrappedList.set( index, element );
+		return list().set( index, element );
 	}
 
 	@Override
 	public void add( int index, Object element )
 	{
-		wrappedList.add( index, element );
+		list().add( index, element );
 	}
 
 	@Override
 	public Object remove( int index )
 	{
-		return wrappedList.remove( index );
+		return list().remove( index );
 	}
 
 	@Override
 	public int indexOf( Object o )
 	{
-		return wrappedList.indexOf( o );
+		return list().indexOf( o );
 	}
 
 	@Override
 	public int lastIndexOf( Object o )
 	{
-		return wrappedList.lastIndexOf( o );
+		return list().lastIndexOf( o );
 	}
 
 	@Override
 	public ListIterator listIterator()
 	{
-		return wrappedList.listIterator();
+		return list().listIterator();
 	}
 
 	@Override
 	public ListIterator listIterator( int index )
 	{
-		return wrappedList.listIterator( index );
+		return list().listIterator( index );
 	}
 
 	@Override
 	public List subList( int fromIndex, int toIndex )
 	{
-		return wrappedList.subList( fromIndex, toIndex );
+		return list().subList( fromIndex, toIndex );
 	}
 
 	@Override
 	public void addListener( InvalidationListener invalidationListener )
 	{
-		wrappedList.addListener( invalidationListener );
+		list().addListener( invalidationListener );
 	}
 
 	@Override
 	public void removeListener( InvalidationListener invalidationListener )
 	{
-		wrappedList.removeListener( invalidationListener );
+		list().removeListener( invalidationListener );
 	}
 }
@@ -8,11 +8,11 @@ public class FluentObservableLists
 {
 	public static FluentObservableList filter( ObservableList wrappedList, Predicate predicate )
 	{
-		return new FluentObservableList( ObservableLists.filter( wrappedList, predicate ) );
+		return new FluentObservableList( wrappedList ).filter( predicate );
 	}
 
 	public static FluentObservableList transform( ObservableList wrappedList, Function function )
 	{
-		return new FluentObservableList( ObservableLists.transform(wrappedList, function) );
+		return new FluentObservableList( wrappedList ).transform( function );
 	}
 }
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2013 SmartBear Software
+ *
+ * Licensed under the EUPL, Version 1.1 or - as soon they will be approved by the European Commission - subsequent
+ * versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is
+ * distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the Licence for the specific language governing permissions and limitations
+ * under the Licence.
+ */
+package org.guavafx;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import javafx.collections.WeakListChangeListener;
+
+import com.google.common.base.Function;
+import com.google.common.base.Predicate;
+
+/**
+ * An ObservableList containing the result of passing each element of a source list through a chain of filter and
+ * transform stages, as built by FluentObservableList.
+ *
+ * Rather than materializing each stage as a derived list of its own, the stages are fused: each source element is
+ * passed through all of them at once, and the result is stored with a weight of 1 if the element passed all filters
+ * and 0 otherwise, in the same way as FilteredList, see WeightedList. A chain of k stages thereby has one listener
+ * and one backing store rather than k of each.
+ *
+ * The list is lazy, see LazyDerivedList.
+ */
+final class FusedList<F, T> extends WeightedList<T>
+{
+	private static final Object EXCLUDED = new Object();
+
+	/**
+	 * A single filter or transform stage. The results of transform stages are memoized as by
+	 * ObservableLists.transform(), so re-adding an element yields the same transformed value.
+	 */
+	static final class Stage
+	{
+		private final Predicate<Object> predicate;
+		private final Function<Object, Object> function;
+
+		private Stage( Predicate<Object> predicate, Function<Object, Object> function )
+		{
+			this.predicate = predicate;
+			this.function = function;
+		}
+
+		@SuppressWarnings( "unchecked" )
+		static Stage filter( Predicate<?> predicate )
+		{
+			return new Stage( ( Predicate<Object> )predicate, null );
+		}
+
+		@SuppressWarnings( "unchecked" )
+		static Stage transform( Function<?, ?> function )
+		{
+			return new Stage( null, TransformCacheSpec.defaults().memoize( ( Function<Object, Object> )function ) );
+		}
+	}
+
+	private final List<Stage> stages;
+
+	private final ObservableList<F> source;
+
+	private final ListChangeListener<F> sourceListener = new ListChangeListener<F>()
+	{
+		@Override
+		public void onChanged( ListChangeListener.Change<? extends F> change )
+		{
+			if( !isObserved() )
+			{
+				return;
+			}
+			recordSourceChange( change );
+			beginChange();
+			while( change.next() )
+			{
+				if( change.wasPermutated() )
+				{
+					permutateElements( change );
+				}
+				else if( change.wasUpdated() )
+				{
+					sourceUpdated( change.getList(), change.getFrom(), change.getTo() );
+				}
+				else
+				{
+					if( change.wasRemoved() )
+					{
+						removeElements( change.getFrom(), change.getFrom() + change.getRemovedSize() );
+					}
+					if( change.wasAdded() )
+					{
+						sourceAdded( change.getFrom(), change.getAddedSubList() );
+					}
+				}
+			}
+			endChange();
+		}
+	};
+	private final ListChangeListener<F> weakSourceListener = new WeakListChangeListener<>( sourceListener );
+
+	FusedList( ObservableList<F> source, List<Stage> stages )
+	{
+		this.source = source;
+		this.stages = stages;
+	}
+
+	@Override
+	protected void connect()
+	{
+		source.addListener( weakSourceListener );
+		sourceAdded( 0, source );
+	}
+
+	@Override
+	protected void disconnect()
+	{
+		source.removeListener( weakSourceListener );
+		elements.clear();
+	}
+
+	/**
+	 * Passes the element through all stages, returning the result, or EXCLUDED if it was filtered out.
+	 */
+	private Object evaluate( Object element )
+	{
+		Object value = element;
+		for( Stage stage : stages )
+		{
+			if( stage.predicate != null )
+			{
+				if( !stage.predicate.apply( value ) )
+				{
+					return EXCLUDED;
+				}
+			}
+			else
+			{
+				value = stage.function.apply( value );
+			}
+		}
+		return value;
+	}
+
+	@SuppressWarnings( "unchecked" )
+	private void sourceAdded( int from, List<? extends F> added )
+	{
+		List<T> values = new ArrayList<>( added.size() );
+		int[] weights = new int[added.size()];
+		for( F element : added )
+		{
+			Object value = evaluate( element );
+			if( value != EXCLUDED )
+			{
+				weights[values.size()] = 1;
+			}
+			values.add( ( T )value );
+		}
+		insertElements( from, values, weights );
+	}
+
+	@SuppressWarnings( "unchecked" )
+	private void sourceUpdated( List<? extends F> source, int from, int to )
+	{
+		for( int i = from; i < to; i++ )
+		{
+			Object value = evaluate( source.get( i ) );
+			updateElement( i, ( T )value, value != EXCLUDED );
+		}
+	}
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2013 SmartBear Software
+ *
+ * Licensed under the EUPL, Version 1.1 or - as soon they will be approved by the European Commission - subsequent
+ * versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is
+ * distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the Licence for the specific language governing permissions and limitations
+ * under the Licence.
+ */
+package org.guavafx;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.Sets;
+
+/**
+ * Coalesces updates of the lists created by ObservableLists.fx() into as few FX thread tasks as possible. Lists which
+ * are invalidated are marked as dirty, and at most one task is pending at any time, bringing all dirty lists up to date
+ * when it runs. Optionally, the rate of such tasks can be limited.
+ *
+ * The dispatcher keeps counters which can be used to monitor the load it is under.
+ */
+public final class FxDispatcher
+{
+	private static final FxDispatcher DEFAULT = new FxDispatcher( Scheduler.fxThread(), 0 );
+
+	/**
+	 * Something which needs to be brought up to date on the thread of the dispatcher.
+	 */
+	interface Sink
+	{
+		void flush();
+	}
+
+	private final Scheduler scheduler;
+	private final long minFlushInterval;
+	private final List<Sink> pending = new ArrayList<>();
+	// Sinks are lists, which compare equal by their contents, so they must be tracked by identity.
+	private final Set<Sink> pendingSet = Sets.newIdentityHashSet();
+	private boolean scheduled = false;
+	private long lastFlush;
+	private int maxPendingCount = 0;
+	private long invalidationCount = 0;
+	private long flushCount = 0;
+
+	private final Runnable flushTask = new Runnable()
+	{
+		@Override
+		public void run()
+		{
+			List<Sink> sinks;
+			synchronized( FxDispatcher.this )
+			{
+				sinks = new ArrayList<>( pending );
+				pending.clear();
+				pendingSet.clear();
+				scheduled = false;
+				lastFlush = scheduler.nanoTime();
+				flushCount++;
+			}
+			for( Sink sink : sinks )
+			{
+				sink.flush();
+			}
+		}
+	};
+
+	private FxDispatcher( Scheduler scheduler, long minFlushInterval )
+	{
+		this.scheduler = scheduler;
+		this.minFlushInterval = minFlushInterval;
+		this.lastFlush = scheduler.nanoTime() - minFlushInterval;
+	}
+
+	/**
+	 * Returns the dispatcher used by ObservableLists.fx( list ), which runs on the FX thread and does not limit the
+	 * flush rate.
+	 *
+	 * @return
+	 */
+	public static FxDispatcher getDefault()
+	{
+		return DEFAULT;
+	}
+
+	/**
+	 * Creates a dispatcher which runs on the FX thread, flushing at most maxFlushesPerSecond times per second.
+	 *
+	 * @param maxFlushesPerSecond
+	 * @return
+	 */
+	public static FxDispatcher create( double maxFlushesPerSecond )
+	{
+		return create( Scheduler.fxThread(), maxFlushesPerSecond );
+	}
+
+	/**
+	 * Creates a dispatcher which runs on the given Scheduler, flushing at most maxFlushesPerSecond times per second. A
+	 * rate of Double.POSITIVE_INFINITY disables the limit.
+	 *
+	 * @param scheduler
+	 * @param maxFlushesPerSecond
+	 * @return
+	 */
+	public static FxDispatcher create( Scheduler scheduler, double maxFlushesPerSecond )
+	{
+		checkArgument( maxFlushesPerSecond > 0, "maxFlushesPerSecond must be positive" );
+		return new FxDispatcher( scheduler, ( long )( TimeUnit.SECONDS.toNanos( 1 ) / maxFlushesPerSecond ) );
+	}
+
+	Scheduler getScheduler()
+	{
+		return scheduler;
+	}
+
+	boolean isRateLimited()
+	{
+		return minFlushInterval > 0;
+	}
+
+	/**
+	 * Marks the sink as dirty, scheduling a flush unless one is already pending.
+	 */
+	synchronized void dispatch( Sink sink )
+	{
+		invalidationCount++;
+		if( pendingSet.add( sink ) )
+		{
+			pending.add( sink );
+		}
+		maxPendingCount = Math.max( maxPendingCount, pending.size() );
+		if( !scheduled )
+		{
+			scheduled = true;
+			long delay = lastFlush + minFlushInterval - scheduler.nanoTime();
+			scheduler.schedule( flushTask, Math.max( 0, delay ), TimeUnit.NANOSECONDS );
+		}
+	}
+
+	/**
+	 * Returns the number of lists currently waiting to be flushed.
+	 *
+	 * @return
+	 */
+	public synchronized int getPendingCount()
+	{
+		return pending.size();
+	}
+
+	/**
+	 * Returns the largest number of lists which have been waiting to be flushed at the same time.
+	 *
+	 * @return
+	 */
+	public synchronized int getMaxPendingCount()
+	{
+		return maxPendingCount;
+	}
+
+	/**
+	 * Returns the number of invalidations which have been dispatched.
+	 *
+	 * @return
+	 */
+	public synchronized long getInvalidationCount()
+	{
+		return invalidationCount;
+	}
+
+	/**
+	 * Returns the number of flush tasks which have been run on the FX thread.
+	 *
+	 * @return
+	 */
+	public synchronized long getFlushCount()
+	{
+		return flushCount;
+	}
+}
@@ -0,0 +1,376 @@
+/*
+ * Copyright 2013 SmartBear Software
+ *
+ * Licensed under the EUPL, Version 1.1 or - as soon they will be approved by the European Commission - subsequent
+ * versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is
+ * distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the Licence for the specific language governing permissions and limitations
+ * under the Licence.
+ */
+package org.guavafx;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javafx.beans.InvalidationListener;
+import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
+import javafx.collections.MapChangeListener;
+import javafx.collections.ObservableList;
+import javafx.collections.ObservableMap;
+import javafx.collections.WeakListChangeListener;
+
+import com.google.common.base.Function;
+import com.google.common.base.Objects;
+import com.google.common.collect.Sets;
+
+/**
+ * A read-only ObservableMap grouping the elements of a source list by a key, as created by ObservableLists.groupBy().
+ *
+ * The key function is applied once per added or updated element, and the element is routed to its group through a hash
+ * lookup. Each group is an ObservableList containing its elements in source order, kept in an IndexedTree ordered by
+ * source position, so only the groups actually affected by a source change report any changes. Groups are added to the
+ * map when their first element is added, and removed when their last element is removed.
+ */
+final class GroupedMap<K, E> extends AbstractMap<K, ObservableList<E>> implements
+		ObservableMap<K, ObservableList<E>>
+{
+	private final IndexedTree<Entry> sourceOrder = new IndexedTree<>();
+	private final Map<K, Group> groups = new HashMap<>();
+	private final ObservableMap<K, ObservableList<E>> map = FXCollections.observableHashMap();
+	private final ObservableMap<K, ObservableList<E>> readOnlyMap = FXCollections.unmodifiableObservableMap( map );
+	private final Function<? super E, ? extends K> keyFunction;
+	// Groups are lists, which compare equal and hash by their contents, so they must be tracked by identity.
+	private final List<Group> touched = new ArrayList<>();
+	private final Set<Group> touchedSet = Sets.newIdentityHashSet();
+
+	private final Comparator<Entry> bySourcePosition = new Comparator<Entry>()
+	{
+		@Override
+		public int compare( Entry left, Entry right )
+		{
+			return Integer.compare( sourceOrder.indexOf( left.sourceNode ), sourceOrder.indexOf( right.sourceNode ) );
+		}
+	};
+
+	private final ListChangeListener<E> sourceListener = new ListChangeListener<E>()
+	{
+		@Override
+		public void onChanged( ListChangeListener.Change<? extends E> change )
+		{
+			while( change.next() )
+			{
+				if( change.wasPermutated() )
+				{
+					sourcePermutated( change );
+				}
+				else if( change.wasUpdated() )
+				{
+					for( int i = change.getFrom(); i < change.getTo(); i++ )
+					{
+						sourceUpdated( i, change.getList().get( i ) );
+					}
+				}
+				else
+				{
+					if( change.wasRemoved() )
+					{
+						sourceRemoved( change.getFrom(), change.getFrom() + change.getRemovedSize() );
+					}
+					if( change.wasAdded() )
+					{
+						sourceAdded( change.getFrom(), change.getAddedSubList() );
+					}
+				}
+			}
+			publish();
+		}
+	};
+
+	GroupedMap( ObservableList<E> source, Function<? super E, ? extends K> keyFunction )
+	{
+		this.keyFunction = keyFunction;
+		source.addListener( new WeakListChangeListener<>( sourceListener ) );
+		sourceAdded( 0, source );
+		publish();
+	}
+
+	@Override
+	public Set<Map.Entry<K, ObservableList<E>>> entrySet()
+	{
+		return readOnlyMap.entrySet();
+	}
+
+	@Override
+	public ObservableList<E> get( Object key )
+	{
+		return readOnlyMap.get( key );
+	}
+
+	@Override
+	public boolean containsKey( Object key )
+	{
+		return readOnlyMap.containsKey( key );
+	}
+
+	@Override
+	public int size()
+	{
+		return readOnlyMap.size();
+	}
+
+	@Override
+	public void addListener( InvalidationListener listener )
+	{
+		readOnlyMap.addListener( listener );
+	}
+
+	@Override
+	public void removeListener( InvalidationListener listener )
+	{
+		readOnlyMap.removeListener( listener );
+	}
+
+	@Override
+	public void addListener( MapChangeListener<? super K, ? super ObservableList<E>> listener )
+	{
+		readOnlyMap.addListener( listener );
+	}
+
+	@Override
+	public void removeListener( MapChangeListener<? super K, ? super ObservableList<E>> listener )
+	{
+		readOnlyMap.removeListener( listener );
+	}
+
+	private void sourceAdded( int from, List<? extends E> added )
+	{
+		List<Entry> entries = new ArrayList<>( added.size() );
+		for( E element : added )
+		{
+			entries.add( new Entry( element ) );
+		}
+		int[] weights = new int[entries.size()];
+		Arrays.fill( weights, 1 );
+		for( IndexedTree.Node<Entry> node : sourceOrder.insertAll( from, entries, weights ) )
+		{
+			node.getValue().sourceNode = node;
+		}
+
+		for( Entry entry : entries )
+		{
+			addToGroup( entry, keyFunction.apply( entry.value ) );
+		}
+	}
+
+	private void sourceRemoved( int from, int to )
+	{
+		for( Entry entry : sourceOrder.removeRange( from, to ) )
+		{
+			removeFromGroup( entry );
+		}
+	}
+
+	private void sourceUpdated( int index, E element )
+	{
+		Entry entry = sourceOrder.get( index );
+		entry.value = element;
+		K key = keyFunction.apply( element );
+		if( Objects.equal( key, entry.group.key ) )
+		{
+			Group group = touch( entry.group );
+			group.nextUpdate( group.elements.indexOf( entry.groupNode ) );
+		}
+		else
+		{
+			removeFromGroup( entry );
+			addToGroup( entry, key );
+		}
+	}
+
+	private void sourcePermutated( ListChangeListener.Change<? extends E> change )
+	{
+		int from = change.getFrom();
+		int to = change.getTo();
+		List<Entry> values = sourceOrder.removeRange( from, to );
+		List<Entry> permutated = new ArrayList<>( values );
+		List<Group> affected = new ArrayList<>();
+		Set<Group> affectedSet = Sets.newIdentityHashSet();
+		for( int i = from; i < to; i++ )
+		{
+			Entry entry = values.get( i - from );
+			permutated.set( change.getPermutation( i ) - from, entry );
+			if( affectedSet.add( entry.group ) )
+			{
+				affected.add( entry.group );
+			}
+		}
+		int[] weights = new int[to - from];
+		Arrays.fill( weights, 1 );
+		for( IndexedTree.Node<Entry> node : sourceOrder.insertAll( from, permutated, weights ) )
+		{
+			node.getValue().sourceNode = node;
+		}
+
+		for( Group group : affected )
+		{
+			touch( group ).resort();
+		}
+	}
+
+	private void addToGroup( Entry entry, K key )
+	{
+		Group group = groups.get( key );
+		if( group == null )
+		{
+			group = new Group( key );
+			groups.put( key, group );
+		}
+		touch( group );
+		int index = group.elements.upperBound( entry, bySourcePosition );
+		entry.group = group;
+		entry.groupNode = group.elements.insert( index, entry, 1 );
+		group.nextAdd( index, index + 1 );
+	}
+
+	private void removeFromGroup( Entry entry )
+	{
+		Group group = touch( entry.group );
+		int index = group.elements.indexOf( entry.groupNode );
+		group.elements.remove( entry.groupNode );
+		group.nextRemove( index, entry.value );
+		entry.group = null;
+		entry.groupNode = null;
+	}
+
+	private Group touch( Group group )
+	{
+		if( touchedSet.add( group ) )
+		{
+			touched.add( group );
+			group.beginChange();
+		}
+		return group;
+	}
+
+	/**
+	 * Ends the changes of all groups affected by a source change, and then adds new groups to and removes empty groups
+	 * from the map.
+	 */
+	private void publish()
+	{
+		List<Group> affected = new ArrayList<>( touched );
+		touched.clear();
+		touchedSet.clear();
+		for( Group group : affected )
+		{
+			group.endChange();
+		}
+		for( Group group : affected )
+		{
+			if( group.isEmpty() )
+			{
+				if( groups.get( group.key ) == group )
+				{
+					groups.remove( group.key );
+				}
+				if( map.get( group.key ) == group )
+				{
+					map.remove( group.key );
+				}
+			}
+			else if( map.get( group.key ) != group )
+			{
+				map.put( group.key, group );
+			}
+		}
+	}
+
+	/**
+	 * An element of the source list, along with its nodes in the source tree and in the tree of its group.
+	 */
+	private final class Entry
+	{
+		private E value;
+		private IndexedTree.Node<Entry> sourceNode;
+		private Group group;
+		private IndexedTree.Node<Entry> groupNode;
+
+		private Entry( E value )
+		{
+			this.value = value;
+		}
+	}
+
+	/**
+	 * The elements of the source list sharing a key, in source order.
+	 */
+	private final class Group extends DerivedObservableList<E>
+	{
+		private final K key;
+		private final IndexedTree<Entry> elements = new IndexedTree<>();
+
+		private Group( K key )
+		{
+			this.key = key;
+		}
+
+		@Override
+		public E get( int index )
+		{
+			return elements.get( index ).value;
+		}
+
+		@Override
+		public int size()
+		{
+			return elements.size();
+		}
+
+		/**
+		 * Restores the source order of the elements after the source list has been permutated.
+		 */
+		private void resort()
+		{
+			List<Entry> entries = elements.values( 0, elements.size() );
+			List<Entry> resorted = new ArrayList<>( entries );
+			Collections.sort( resorted, bySourcePosition );
+			if( resorted.equals( entries ) )
+			{
+				return;
+			}
+
+			Map<Entry, Integer> newIndexes = new HashMap<>();
+			for( int i = 0; i < resorted.size(); i++ )
+			{
+				newIndexes.put( resorted.get( i ), i );
+			}
+			int[] permutation = new int[entries.size()];
+			for( int i = 0; i < entries.size(); i++ )
+			{
+				permutation[i] = newIndexes.get( entries.get( i ) );
+			}
+			int[] weights = new int[resorted.size()];
+			Arrays.fill( weights, 1 );
+			elements.clear();
+			for( IndexedTree.Node<Entry> node : elements.insertAll( 0, resorted, weights ) )
+			{
+				node.getValue().groupNode = node;
+			}
+			nextPermutation( 0, permutation.length, permutation );
+		}
+	}
+}
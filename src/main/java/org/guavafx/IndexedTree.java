@@ -0,0 +1,516 @@
+/*
+ * Copyright 2013 SmartBear Software
+ *
+ * Licensed under the EUPL, Version 1.1 or - as soon they will be approved by the European Commission - subsequent
+ * versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is
+ * distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the Licence for the specific language governing permissions and limitations
+ * under the Licence.
+ */
+package org.guavafx;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A sequence of weighted values, stored as an implicit treap. Supports insertion and removal at arbitrary positions,
+ * lookup by position and by accumulated weight, and finding the position of a node, all in O(log n).
+ *
+ * Derived lists use the weights to map between positions in a source list and positions in the derived list, e.g. a
+ * weight of 0 or 1 for filtering, or the size of each sublist when concatenating.
+ *
+ * Optionally, each node also keeps the combination of the values in its subtree according to a Monoid, which makes the
+ * tree a segment tree: the combination of all values is available in O(1), and kept up to date in O(log n) per
+ * modification.
+ */
+final class IndexedTree<V>
+{
+	static final class Node<V>
+	{
+		private V value;
+		private V aggregate;
+		private int weight;
+		private int size = 1;
+		private int weightSum;
+		private int priority;
+		private Node<V> left;
+		private Node<V> right;
+		private Node<V> parent;
+
+		private Node( V value, int weight, int priority )
+		{
+			this.value = value;
+			this.aggregate = value;
+			this.weight = weight;
+			this.weightSum = weight;
+			this.priority = priority;
+		}
+
+		V getValue()
+		{
+			return value;
+		}
+
+		int getWeight()
+		{
+			return weight;
+		}
+	}
+
+	private final Random random = new Random();
+	private final Monoid<V> monoid;
+	private Node<V> root;
+
+	// Results of split(), to avoid allocating a pair for each call.
+	private Node<V> splitLeft;
+	private Node<V> splitRight;
+
+	IndexedTree()
+	{
+		this( null );
+	}
+
+	/**
+	 * Creates a tree which combines its values using the given monoid, or not at all if it is null.
+	 */
+	IndexedTree( Monoid<V> monoid )
+	{
+		this.monoid = monoid;
+	}
+
+	int size()
+	{
+		return size( root );
+	}
+
+	/**
+	 * Returns the combination of all values, in order, according to the monoid of the tree.
+	 */
+	V aggregate()
+	{
+		return root == null ? monoid.identity() : root.aggregate;
+	}
+
+	int totalWeight()
+	{
+		return weightSum( root );
+	}
+
+	V get( int index )
+	{
+		return node( index ).value;
+	}
+
+	Node<V> node( int index )
+	{
+		checkIndex( index, size() );
+		Node<V> node = root;
+		while( true )
+		{
+			int leftSize = size( node.left );
+			if( index < leftSize )
+			{
+				node = node.left;
+			}
+			else if( index == leftSize )
+			{
+				return node;
+			}
+			else
+			{
+				index -= leftSize + 1;
+				node = node.right;
+			}
+		}
+	}
+
+	/**
+	 * Returns the node which covers the given weight offset, that is, the node at the index i for which
+	 * weightBefore(i) <= weight < weightBefore(i) + weight(i). Nodes with zero weight are never returned.
+	 */
+	Node<V> nodeAtWeight( int weight )
+	{
+		checkIndex( weight, totalWeight() );
+		Node<V> node = root;
+		while( true )
+		{
+			int leftWeight = weightSum( node.left );
+			if( weight < leftWeight )
+			{
+				node = node.left;
+			}
+			else if( weight < leftWeight + node.weight )
+			{
+				return node;
+			}
+			else
+			{
+				weight -= leftWeight + node.weight;
+				node = node.right;
+			}
+		}
+	}
+
+	/**
+	 * Returns the sum of the weights of all nodes before the given index.
+	 */
+	int weightBefore( int index )
+	{
+		checkIndex( index, size() + 1 );
+		int sum = 0;
+		Node<V> node = root;
+		while( node != null )
+		{
+			int leftSize = size( node.left );
+			if( index <= leftSize )
+			{
+				node = node.left;
+			}
+			else
+			{
+				sum += weightSum( node.left ) + node.weight;
+				index -= leftSize + 1;
+				node = node.right;
+			}
+		}
+		return sum;
+	}
+
+	int weightBefore( Node<V> node )
+	{
+		int sum = weightSum( node.left );
+		for( Node<V> child = node, parent = node.parent; parent != null; child = parent, parent = parent.parent )
+		{
+			if( child == parent.right )
+			{
+				sum += weightSum( parent.left ) + parent.weight;
+			}
+		}
+		return sum;
+	}
+
+	int indexOf( Node<V> node )
+	{
+		int index = size( node.left );
+		for( Node<V> child = node, parent = node.parent; parent != null; child = parent, parent = parent.parent )
+		{
+			if( child == parent.right )
+			{
+				index += size( parent.left ) + 1;
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Returns the number of values which are less than or equal to the given value, that is, the index at which to
+	 * insert it after any equal values. The values in the tree must be sorted according to the comparator.
+	 */
+	int upperBound( V value, Comparator<? super V> comparator )
+	{
+		int index = 0;
+		Node<V> node = root;
+		while( node != null )
+		{
+			if( comparator.compare( node.value, value ) <= 0 )
+			{
+				index += size( node.left ) + 1;
+				node = node.right;
+			}
+			else
+			{
+				node = node.left;
+			}
+		}
+		return index;
+	}
+
+	Node<V> insert( int index, V value, int weight )
+	{
+		checkIndex( index, size() + 1 );
+		Node<V> node = new Node<>( value, weight, random.nextInt() );
+		split( root, index );
+		Node<V> right = splitRight;
+		setRoot( merge( merge( splitLeft, node ), right ) );
+		return node;
+	}
+
+	/**
+	 * Inserts all the given values at the given index, building a balanced subtree in linear time (plus sorting the
+	 * priorities) before merging it into the tree.
+	 */
+	List<Node<V>> insertAll( int index, List<? extends V> values, int[] weights )
+	{
+		checkIndex( index, size() + 1 );
+		List<Node<V>> nodes = new ArrayList<>( values.size() );
+		if( values.isEmpty() )
+		{
+			return nodes;
+		}
+
+		int[] priorities = new int[values.size()];
+		for( int i = 0; i < priorities.length; i++ )
+		{
+			priorities[i] = random.nextInt();
+		}
+		Arrays.sort( priorities );
+
+		int i = 0;
+		for( V value : values )
+		{
+			nodes.add( new Node<>( value, weights[i++], 0 ) );
+		}
+		Node<V> subtree = build( nodes, 0, nodes.size() );
+
+		// Assigning decreasing priorities in breadth first order keeps the subtree heap ordered.
+		Deque<Node<V>> queue = new ArrayDeque<>();
+		queue.add( subtree );
+		int p = priorities.length;
+		while( !queue.isEmpty() )
+		{
+			Node<V> node = queue.poll();
+			node.priority = priorities[--p];
+			if( node.left != null )
+				queue.add( node.left );
+			if( node.right != null )
+				queue.add( node.right );
+		}
+
+		split( root, index );
+		Node<V> right = splitRight;
+		setRoot( merge( merge( splitLeft, subtree ), right ) );
+		return nodes;
+	}
+
+	/**
+	 * Removes the nodes in the range [from, to), returning their values in order.
+	 */
+	List<V> removeRange( int from, int to )
+	{
+		checkIndex( from, to + 1 );
+		checkIndex( to, size() + 1 );
+		List<V> removed = new ArrayList<>( to - from );
+		if( from == to )
+		{
+			return removed;
+		}
+
+		split( root, from );
+		Node<V> left = splitLeft;
+		split( splitRight, to - from );
+		Node<V> middle = splitLeft;
+		setRoot( merge( left, splitRight ) );
+
+		collect( middle, removed );
+		return removed;
+	}
+
+	V remove( Node<V> node )
+	{
+		int index = indexOf( node );
+		return removeRange( index, index + 1 ).get( 0 );
+	}
+
+	void clear()
+	{
+		root = null;
+	}
+
+	void setValue( Node<V> node, V value )
+	{
+		node.value = value;
+		if( monoid != null )
+		{
+			for( Node<V> n = node; n != null; n = n.parent )
+			{
+				n.aggregate = combine( n );
+			}
+		}
+	}
+
+	void setWeight( Node<V> node, int weight )
+	{
+		node.weight = weight;
+		for( Node<V> n = node; n != null; n = n.parent )
+		{
+			n.weightSum = n.weight + weightSum( n.left ) + weightSum( n.right );
+		}
+	}
+
+	/**
+	 * Returns the values of the nodes in the range [from, to), in order.
+	 */
+	List<V> values( int from, int to )
+	{
+		checkIndex( from, to + 1 );
+		checkIndex( to, size() + 1 );
+		List<V> values = new ArrayList<>( to - from );
+		for( int i = from; i < to; i++ )
+		{
+			values.add( get( i ) );
+		}
+		return values;
+	}
+
+	/**
+	 * Returns all nodes, in order, in O(n).
+	 */
+	List<Node<V>> nodes()
+	{
+		List<Node<V>> nodes = new ArrayList<>( size() );
+		Deque<Node<V>> stack = new ArrayDeque<>();
+		Node<V> node = root;
+		while( node != null || !stack.isEmpty() )
+		{
+			while( node != null )
+			{
+				stack.push( node );
+				node = node.left;
+			}
+			node = stack.pop();
+			nodes.add( node );
+			node = node.right;
+		}
+		return nodes;
+	}
+
+	private Node<V> build( List<Node<V>> nodes, int from, int to )
+	{
+		if( from == to )
+		{
+			return null;
+		}
+		int mid = ( from + to ) >>> 1;
+		Node<V> node = nodes.get( mid );
+		node.left = build( nodes, from, mid );
+		node.right = build( nodes, mid + 1, to );
+		update( node );
+		return node;
+	}
+
+	private Node<V> merge( Node<V> left, Node<V> right )
+	{
+		if( left == null )
+		{
+			return right;
+		}
+		if( right == null )
+		{
+			return left;
+		}
+		if( left.priority > right.priority )
+		{
+			left.right = merge( left.right, right );
+			update( left );
+			return left;
+		}
+		right.left = merge( left, right.left );
+		update( right );
+		return right;
+	}
+
+	/**
+	 * Splits the given tree into the first count nodes, stored in splitLeft, and the rest, stored in splitRight.
+	 */
+	private void split( Node<V> node, int count )
+	{
+		if( node == null )
+		{
+			splitLeft = splitRight = null;
+			return;
+		}
+		if( count <= size( node.left ) )
+		{
+			split( node.left, count );
+			node.left = splitRight;
+			update( node );
+			splitRight = node;
+		}
+		else
+		{
+			split( node.right, count - size( node.left ) - 1 );
+			node.right = splitLeft;
+			update( node );
+			splitLeft = node;
+		}
+		node.parent = null;
+	}
+
+	private void setRoot( Node<V> node )
+	{
+		root = node;
+		if( root != null )
+		{
+			root.parent = null;
+		}
+	}
+
+	private void update( Node<V> node )
+	{
+		node.size = 1 + size( node.left ) + size( node.right );
+		node.weightSum = node.weight + weightSum( node.left ) + weightSum( node.right );
+		if( monoid != null )
+			node.aggregate = combine( node );
+		if( node.left != null )
+			node.left.parent = node;
+		if( node.right != null )
+			node.right.parent = node;
+	}
+
+	private V combine( Node<V> node )
+	{
+		V aggregate = node.value;
+		if( node.left != null )
+			aggregate = monoid.combine( node.left.aggregate, aggregate );
+		if( node.right != null )
+			aggregate = monoid.combine( aggregate, node.right.aggregate );
+		return aggregate;
+	}
+
+	private static <V> void collect( Node<V> node, List<V> values )
+	{
+		Deque<Node<V>> stack = new ArrayDeque<>();
+		while( node != null || !stack.isEmpty() )
+		{
+			while( node != null )
+			{
+				stack.push( node );
+				node = node.left;
+			}
+			node = stack.pop();
+			values.add( node.value );
+			Node<V> right = node.right;
+			node.left = node.right = node.parent = null;
+			node = right;
+		}
+	}
+
+	private static int size( Node<?> node )
+	{
+		return node == null ? 0 : node.size;
+	}
+
+	private static int weightSum( Node<?> node )
+	{
+		return node == null ? 0 : node.weightSum;
+	}
+
+	private static void checkIndex( int index, int size )
+	{
+		if( index < 0 || index >= size )
+		{
+			throw new IndexOutOfBoundsException( "Index: " + index + ", Size: " + size );
+		}
+	}
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright 2013 SmartBear Software
+ *
+ * Licensed under the EUPL, Version 1.1 or - as soon they will be approved by the European Commission - subsequent
+ * versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is
+ * distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the Licence for the specific language governing permissions and limitations
+ * under the Licence.
+ */
+package org.guavafx;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.ReferenceQueue;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+import javafx.collections.ObservableList;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Opt-in instrumentation of the lists created by ObservableLists and FluentObservableList.
+ *
+ * While enabled, every created list records a ListMetricsMXBean, and is registered in a registry under a generated
+ * name. Lists which are given a meaningful name using name(), which also registers lists created while the
+ * instrumentation was disabled, are additionally registered as an MXBean on the platform MBeanServer, with the object
+ * name org.guavafx:type=ObservableList,name=<name>. Intermediate lists, such as the stages of a chain or the groups of
+ * groupBy(), are thereby kept out of JMX unless asked for. Registered lists are only weakly referenced, and a daemon
+ * thread unregisters them once they have been garbage collected.
+ *
+ * While disabled, the overhead is a check of a static flag per change.
+ */
+public final class Instrumentation
+{
+	static final String DOMAIN = "org.guavafx";
+
+	static volatile boolean enabled = false;
+
+	private static final Map<String, ListMetrics> registry = new HashMap<>();
+	private static final ReferenceQueue<DerivedObservableList<?>> collected = new ReferenceQueue<>();
+	private static long generatedNames = 0;
+	private static Thread cleaner;
+
+	private Instrumentation()
+	{
+	}
+
+	/**
+	 * Enables the instrumentation of lists created or named from now on, and resumes recording for lists registered
+	 * earlier.
+	 */
+	public static void enable()
+	{
+		startCleaner();
+		enabled = true;
+	}
+
+	/**
+	 * Stops recording metrics. Registered lists stay registered.
+	 */
+	public static void disable()
+	{
+		enabled = false;
+	}
+
+	public static boolean isEnabled()
+	{
+		return enabled;
+	}
+
+	/**
+	 * Registers a list created by ObservableLists or FluentObservableList under the given name, replacing its
+	 * generated name, and any other list registered under the same name.
+	 *
+	 * @param list
+	 * @param name
+	 * @return the list
+	 */
+	public static <L extends ObservableList<?>> L name( L list, String name )
+	{
+		checkNotNull( name, "name" );
+		ObservableList<?> derived = list instanceof FluentObservableList ? ( ( FluentObservableList )list ).list() : list;
+		checkArgument( derived instanceof DerivedObservableList, "Not a list created by ObservableLists" );
+		synchronized( Instrumentation.class )
+		{
+			DerivedObservableList<?> derivedList = ( DerivedObservableList<?> )derived;
+			ListMetrics metrics = derivedList.getMetrics();
+			if( metrics == null )
+			{
+				metrics = new ListMetrics( derivedList, name, collected );
+				derivedList.setMetrics( metrics );
+			}
+			else
+			{
+				unregister( metrics );
+				metrics.setName( name );
+			}
+			register( metrics, true );
+		}
+		startCleaner();
+		return list;
+	}
+
+	/**
+	 * Returns the metrics of the list, or null if it isn't instrumented.
+	 *
+	 * @param list
+	 * @return
+	 */
+	public static ListMetricsMXBean getMetrics( ObservableList<?> list )
+	{
+		ObservableList<?> derived = list instanceof FluentObservableList ? ( ( FluentObservableList )list ).list() : list;
+		return derived instanceof DerivedObservableList ? ( ( DerivedObservableList<?> )derived ).getMetrics() : null;
+	}
+
+	/**
+	 * Returns the metrics of all registered lists which are still alive, by name.
+	 *
+	 * @return
+	 */
+	public static synchronized Map<String, ListMetricsMXBean> getRegistry()
+	{
+		expunge();
+		return ImmutableMap.<String, ListMetricsMXBean> copyOf( registry );
+	}
+
+	/**
+	 * Creates the metrics of a newly created list, and registers them in the registry under a generated name.
+	 */
+	static synchronized ListMetrics created( DerivedObservableList<?> list )
+	{
+		ListMetrics metrics = new ListMetrics( list, list.getClass().getSimpleName() + "-" + ++generatedNames,
+				collected );
+		register( metrics, false );
+		return metrics;
+	}
+
+	static ObjectName objectName( String name ) throws JMException
+	{
+		return new ObjectName( DOMAIN + ":type=ObservableList,name=" + ObjectName.quote( name ) );
+	}
+
+	private static void register( ListMetrics metrics, boolean export )
+	{
+		expunge();
+		ListMetrics replaced = registry.put( metrics.getName(), metrics );
+		if( !export && replaced == null )
+		{
+			return;
+		}
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try
+		{
+			ObjectName objectName = objectName( metrics.getName() );
+			if( replaced != null && server.isRegistered( objectName ) )
+			{
+				server.unregisterMBean( objectName );
+			}
+			if( export )
+			{
+				server.registerMBean( new StandardMBean( metrics, ListMetricsMXBean.class, true ), objectName );
+			}
+		}
+		catch( JMException e )
+		{
+			throw new IllegalStateException( "Could not register " + metrics.getName() + " over JMX", e );
+		}
+	}
+
+	private static void unregister( ListMetrics metrics )
+	{
+		if( registry.get( metrics.getName() ) != metrics )
+		{
+			return;
+		}
+		registry.remove( metrics.getName() );
+		try
+		{
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean( objectName( metrics.getName() ) );
+		}
+		catch( JMException e )
+		{
+			// Not exported, or already unregistered.
+		}
+	}
+
+	/**
+	 * Starts the daemon thread which unregisters the metrics of lists as soon as they have been garbage collected,
+	 * unless it is already running.
+	 */
+	private static synchronized void startCleaner()
+	{
+		if( cleaner != null )
+		{
+			return;
+		}
+		cleaner = new Thread( new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				while( true )
+				{
+					ListMetrics.Reference reference;
+					try
+					{
+						reference = ( ListMetrics.Reference )collected.remove();
+					}
+					catch( InterruptedException e )
+					{
+						return;
+					}
+					synchronized( Instrumentation.class )
+					{
+						unregister( reference.metrics );
+					}
+				}
+			}
+		}, "GuavaFX instrumentation cleaner" );
+		cleaner.setDaemon( true );
+		cleaner.start();
+	}
+
+	/**
+	 * Unregisters the metrics of lists which have been garbage collected.
+	 */
+	private static void expunge()
+	{
+		for( Object reference = collected.poll(); reference != null; reference = collected.poll() )
+		{
+			unregister( ( ( ListMetrics.Reference )reference ).metrics );
+		}
+	}
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2013 SmartBear Software
+ *
+ * Licensed under the EUPL, Version 1.1 or - as soon they will be approved by the European Commission - subsequent
+ * versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is
+ * distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the Licence for the specific language governing permissions and limitations
+ * under the Licence.
+ */
+package org.guavafx;
+
+/**
+ * Base class for derived lists which are only computed on demand.
+ *
+ * A lazy list doesn't listen to its sources or compute its contents until it is first read or gets its first listener.
+ * When its last listener is removed, or its sources change while nobody is listening, it detaches from its sources and
+ * discards its contents, which are recomputed on the next read. Subclasses call validate() before reading their
+ * contents, and check isObserved() when their sources change, calling invalidate() instead of updating if it returns
+ * false.
+ */
+abstract class LazyDerivedList<E> extends DerivedObservableList<E>
+{
+	private boolean connected = false;
+
+	/**
+	 * Starts listening to the sources and computes the contents from scratch, without reporting any changes.
+	 */
+	protected abstract void connect();
+
+	/**
+	 * Stops listening to the sources and discards the contents.
+	 */
+	protected abstract void disconnect();
+
+	protected final void validate()
+	{
+		if( !connected )
+		{
+			connected = true;
+			connect();
+		}
+	}
+
+	protected final void invalidate()
+	{
+		if( connected )
+		{
+			connected = false;
+			disconnect();
+		}
+	}
+
+	protected final boolean isConnected()
+	{
+		return connected;
+	}
+
+	/**
+	 * Returns true if changes of the sources need to be applied to this list, or otherwise detaches the list from its
+	 * sources.
+	 */
+	protected final boolean isObserved()
+	{
+		if( hasListeners() )
+		{
+			return true;
+		}
+		invalidate();
+		return false;
+	}
+
+	@Override
+	protected void firstListenerAdded()
+	{
+		validate();
+	}
+
+	@Override
+	protected void lastListenerRemoved()
+	{
+		invalidate();
+	}
+}
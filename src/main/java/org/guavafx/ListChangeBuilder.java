@@ -0,0 +1,367 @@
+/*
+ * Copyright 2013 SmartBear Software
+ *
+ * Licensed under the EUPL, Version 1.1 or - as soon they will be approved by the European Commission - subsequent
+ * versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is
+ * distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the Licence for the specific language governing permissions and limitations
+ * under the Licence.
+ */
+package org.guavafx;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+
+/**
+ * Records modifications made to an ObservableList and combines them into a single ListChangeListener.Change.
+ *
+ * Modifications are reported after they have been applied to the list, using indexes relative to the state of the list
+ * just before the modification. They may be reported in any order; overlapping and adjacent modifications are merged,
+ * so that the resulting Change always consists of a permutation (if any), followed by non-overlapping add/remove
+ * sub-changes in ascending order, followed by updates.
+ */
+final class ListChangeBuilder<E>
+{
+	private final ObservableList<E> list;
+	private final List<SubChange<E>> changes = new ArrayList<>();
+	private final List<Integer> updates = new ArrayList<>();
+	private int[] permutation;
+	private int permutationFrom;
+
+	ListChangeBuilder( ObservableList<E> list )
+	{
+		this.list = list;
+	}
+
+	boolean isEmpty()
+	{
+		return permutation == null && changes.isEmpty() && updates.isEmpty();
+	}
+
+	/**
+	 * Records that the elements in removed, previously located starting at from, have been replaced by addedSize new
+	 * elements.
+	 */
+	void nextReplace( int from, List<? extends E> removed, int addedSize )
+	{
+		int removedSize = removed.size();
+		if( removedSize == 0 && addedSize == 0 )
+		{
+			return;
+		}
+		int delta = addedSize - removedSize;
+		int end = from + removedSize;
+
+		for( int i = updates.size() - 1; i >= 0; i-- )
+		{
+			int update = updates.get( i );
+			if( update >= end )
+			{
+				updates.set( i, update + delta );
+			}
+			else if( update >= from )
+			{
+				updates.remove( i );
+			}
+			else
+			{
+				break;
+			}
+		}
+
+		int first = firstTouching( from );
+		int last = first;
+		while( last < changes.size() && changes.get( last ).from <= end )
+		{
+			last++;
+		}
+
+		SubChange<E> merged;
+		if( first == last )
+		{
+			merged = new SubChange<>( from, from + addedSize, new ArrayList<E>( removed ) );
+			changes.add( first, merged );
+		}
+		else
+		{
+			int start = Math.min( changes.get( first ).from, from );
+			int stop = Math.max( changes.get( last - 1 ).to, end );
+			// Extend the removed elements of the first sub-change in place if they come first, so that growing a
+			// sub-change one element at a time doesn't copy them each time.
+			List<E> originals = start == changes.get( first ).from ? changes.get( first ).removed
+					: new ArrayList<E>();
+			int position = start;
+			for( int i = first; i <= last; i++ )
+			{
+				int gapEnd = i < last ? changes.get( i ).from : stop;
+				for( ; position < gapEnd; position++ )
+				{
+					originals.add( elementBefore( position, from, removed, delta ) );
+				}
+				if( i < last )
+				{
+					if( changes.get( i ).removed != originals )
+					{
+						originals.addAll( changes.get( i ).removed );
+					}
+					position = changes.get( i ).to;
+				}
+			}
+			changes.subList( first, last ).clear();
+			merged = new SubChange<>( start, stop + delta, originals );
+			changes.add( first, merged );
+		}
+
+		for( int i = first + 1; i < changes.size(); i++ )
+		{
+			changes.get( i ).from += delta;
+			changes.get( i ).to += delta;
+		}
+
+		if( merged.from == merged.to && merged.removed.isEmpty() )
+		{
+			changes.remove( first );
+		}
+	}
+
+	/**
+	 * Records that the elements in [from, to) have been reordered, so that the element previously at index i now is
+	 * at index permutation[i - from].
+	 */
+	void nextPermutation( int from, int to, int[] perm )
+	{
+		if( !changes.isEmpty() )
+		{
+			// Permutations must precede structural changes, so record it as a replacement instead.
+			List<E> previous = new ArrayList<>( to - from );
+			for( int i = from; i < to; i++ )
+			{
+				previous.add( list.get( perm[i - from] ) );
+			}
+			nextReplace( from, previous, to - from );
+			return;
+		}
+
+		int start = from;
+		int stop = to;
+		if( permutation != null )
+		{
+			start = Math.min( start, permutationFrom );
+			stop = Math.max( stop, permutationFrom + permutation.length );
+		}
+		int[] composed = new int[stop - start];
+		boolean identity = true;
+		for( int i = start; i < stop; i++ )
+		{
+			int index = i;
+			if( permutation != null && index >= permutationFrom && index < permutationFrom + permutation.length )
+			{
+				index = permutation[index - permutationFrom];
+			}
+			if( index >= from && index < to )
+			{
+				index = perm[index - from];
+			}
+			composed[i - start] = index;
+			identity &= index == i;
+		}
+		permutation = identity ? null : composed;
+		permutationFrom = start;
+
+		for( int i = 0; i < updates.size(); i++ )
+		{
+			int update = updates.get( i );
+			if( update >= from && update < to )
+			{
+				updates.set( i, perm[update - from] );
+			}
+		}
+		Collections.sort( updates );
+	}
+
+	/**
+	 * Records that the element at the given index has been updated.
+	 */
+	void nextUpdate( int index )
+	{
+		int touching = firstTouching( index );
+		if( touching < changes.size() && changes.get( touching ).from <= index && index < changes.get( touching ).to )
+		{
+			return;
+		}
+		int position = Collections.binarySearch( updates, index );
+		if( position < 0 )
+		{
+			updates.add( -position - 1, index );
+		}
+	}
+
+	/**
+	 * Creates a Change containing everything recorded so far, and resets the builder.
+	 */
+	ListChangeListener.Change<E> build()
+	{
+		List<SubChange<E>> subChanges = new ArrayList<>( changes.size() + 1 );
+		if( permutation != null )
+		{
+			SubChange<E> permutated = new SubChange<>( permutationFrom, permutationFrom + permutation.length,
+					Collections.<E> emptyList() );
+			permutated.permutation = permutation;
+			subChanges.add( permutated );
+		}
+		subChanges.addAll( changes );
+		for( int i = 0; i < updates.size(); )
+		{
+			int from = updates.get( i );
+			int to = from + 1;
+			for( i++; i < updates.size() && updates.get( i ) == to; i++ )
+			{
+				to++;
+			}
+			SubChange<E> updated = new SubChange<>( from, to, Collections.<E> emptyList() );
+			updated.updated = true;
+			subChanges.add( updated );
+		}
+
+		permutation = null;
+		changes.clear();
+		updates.clear();
+
+		return new RecordedChange<>( list, subChanges );
+	}
+
+	/**
+	 * Returns the index of the first sub-change which ends at or after the given index.
+	 */
+	private int firstTouching( int index )
+	{
+		int low = 0;
+		int high = changes.size();
+		while( low < high )
+		{
+			int mid = ( low + high ) >>> 1;
+			if( changes.get( mid ).to < index )
+			{
+				low = mid + 1;
+			}
+			else
+			{
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Returns the element which was at the given position just before the modification currently being recorded.
+	 */
+	private E elementBefore( int position, int from, List<? extends E> removed, int delta )
+	{
+		if( position < from )
+		{
+			return list.get( position );
+		}
+		if( position < from + removed.size() )
+		{
+			return removed.get( position - from );
+		}
+		return list.get( position + delta );
+	}
+
+	private static final class SubChange<E>
+	{
+		private int from;
+		private int to;
+		private final List<E> removed;
+		private int[] permutation;
+		private boolean updated;
+
+		private SubChange( int from, int to, List<E> removed )
+		{
+			this.from = from;
+			this.to = to;
+			this.removed = removed;
+		}
+	}
+
+	private static final class RecordedChange<E> extends ListChangeListener.Change<E>
+	{
+		private static final int[] NO_PERMUTATION = new int[0];
+
+		private final List<SubChange<E>> subChanges;
+		private int cursor = -1;
+
+		private RecordedChange( ObservableList<E> list, List<SubChange<E>> subChanges )
+		{
+			super( list );
+			this.subChanges = subChanges;
+		}
+
+		@Override
+		public boolean next()
+		{
+			if( cursor + 1 < subChanges.size() )
+			{
+				cursor++;
+				return true;
+			}
+			return false;
+		}
+
+		@Override
+		public void reset()
+		{
+			cursor = -1;
+		}
+
+		@Override
+		public int getFrom()
+		{
+			return current().from;
+		}
+
+		@Override
+		public int getTo()
+		{
+			return current().to;
+		}
+
+		@Override
+		public List<E> getRemoved()
+		{
+			return Collections.unmodifiableList( current().removed );
+		}
+
+		@Override
+		protected int[] getPermutation()
+		{
+			int[] permutation = current().permutation;
+			return permutation == null ? NO_PERMUTATION : permutation;
+		}
+
+		@Override
+		public boolean wasUpdated()
+		{
+			return current().updated;
+		}
+
+		private SubChange<E> current()
+		{
+			if( cursor < 0 || cursor >= subChanges.size() )
+			{
+				throw new IllegalStateException( "Invalid Change state: next() must be called before inspecting the Change." );
+			}
+			return subChanges.get( cursor );
+		}
+	}
+}
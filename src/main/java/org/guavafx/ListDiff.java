@@ -0,0 +1,289 @@
+/*
+ * Copyright 2013 SmartBear Software
+ *
+ * Licensed under the EUPL, Version 1.1 or - as soon they will be approved by the European Commission - subsequent
+ * versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is
+ * distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the Licence for the specific language governing permissions and limitations
+ * under the Licence.
+ */
+package org.guavafx;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.base.Equivalence;
+
+/**
+ * An edit script which transforms one list into another, as computed by ObservableLists.diff().
+ *
+ * The edits are ordered by index, and each index is relative to the list with all the previous edits already applied,
+ * the same way as the sub-changes of a ListChangeListener.Change.
+ *
+ * The script is computed using Myers' O((N+M)D) algorithm, after stripping any common prefix and suffix, which makes
+ * small changes to large lists cheap. Elements are compared by hashing them into integer ids first, using their equals()
+ * or another Equivalence, such as identity for lists which must not keep stale instances of equal elements. If the
+ * lists are too different for the script to be computed cheaply, the differing part is replaced as a whole.
+ */
+public final class ListDiff<E>
+{
+	/**
+	 * Upper bound on (N+M)*D, above which the differing part is replaced as a whole.
+	 */
+	private static final long MAX_COST = 50000000L;
+
+	/**
+	 * Upper bound on D, which bounds the memory needed to trace back the edit script to O(D^2).
+	 */
+	private static final int MAX_EDIT_DISTANCE = 1024;
+
+	/**
+	 * A single edit, replacing the elements in removed, starting at index, with the elements in added.
+	 */
+	public static final class Edit<E>
+	{
+		private final int index;
+		private final List<E> removed;
+		private final List<E> added;
+
+		private Edit( int index, List<E> removed, List<E> added )
+		{
+			this.index = index;
+			this.removed = removed;
+			this.added = added;
+		}
+
+		public int getIndex()
+		{
+			return index;
+		}
+
+		public List<E> getRemoved()
+		{
+			return removed;
+		}
+
+		public List<E> getAdded()
+		{
+			return added;
+		}
+
+		@Override
+		public String toString()
+		{
+			return index + ":" + removed + "->" + added;
+		}
+	}
+
+	private final List<Edit<E>> edits;
+
+	private ListDiff( List<Edit<E>> edits )
+	{
+		this.edits = Collections.unmodifiableList( edits );
+	}
+
+	public List<Edit<E>> getEdits()
+	{
+		return edits;
+	}
+
+	public boolean isEmpty()
+	{
+		return edits.isEmpty();
+	}
+
+	/**
+	 * Applies the edits to the given list, which should be equal to the list the script was computed from.
+	 *
+	 * @param list
+	 */
+	public void applyTo( List<? super E> list )
+	{
+		for( Edit<E> edit : edits )
+		{
+			list.subList( edit.index, edit.index + edit.removed.size() ).clear();
+			list.addAll( edit.index, edit.added );
+		}
+	}
+
+	@Override
+	public String toString()
+	{
+		return edits.toString();
+	}
+
+	static <E> ListDiff<E> compute( List<? extends E> source, List<? extends E> target )
+	{
+		return compute( source, target, Equivalence.equals() );
+	}
+
+	static <E> ListDiff<E> compute( List<? extends E> source, List<? extends E> target,
+			Equivalence<Object> equivalence )
+	{
+		int sourceEnd = source.size();
+		int targetEnd = target.size();
+		int start = 0;
+		while( start < sourceEnd && start < targetEnd && equivalence.equivalent( source.get( start ), target.get( start ) ) )
+		{
+			start++;
+		}
+		while( sourceEnd > start && targetEnd > start
+				&& equivalence.equivalent( source.get( sourceEnd - 1 ), target.get( targetEnd - 1 ) ) )
+		{
+			sourceEnd--;
+			targetEnd--;
+		}
+
+		List<Edit<E>> edits = new ArrayList<>();
+		if( start == sourceEnd || start == targetEnd )
+		{
+			addEdit( edits, start, source.subList( start, sourceEnd ), target.subList( start, targetEnd ) );
+			return new ListDiff<>( edits );
+		}
+
+		List<? extends E> from = source.subList( start, sourceEnd );
+		List<? extends E> to = target.subList( start, targetEnd );
+		int[] a = new int[from.size()];
+		int[] b = new int[to.size()];
+		Map<Equivalence.Wrapper<Object>, Integer> ids = new HashMap<>();
+		hash( from, a, ids, equivalence );
+		hash( to, b, ids, equivalence );
+
+		int[] matches = match( a, b );
+		if( matches == null )
+		{
+			addEdit( edits, start, from, to );
+			return new ListDiff<>( edits );
+		}
+
+		int previousA = 0;
+		int previousB = 0;
+		for( int i = 0; i <= a.length; i++ )
+		{
+			if( i == a.length || matches[i] >= 0 )
+			{
+				int j = i == a.length ? b.length : matches[i];
+				addEdit( edits, start + previousB, from.subList( previousA, i ), to.subList( previousB, j ) );
+				previousA = i + 1;
+				previousB = j + 1;
+			}
+		}
+
+		return new ListDiff<>( edits );
+	}
+
+	private static <E> void addEdit( List<Edit<E>> edits, int index, List<? extends E> removed, List<? extends E> added )
+	{
+		if( !removed.isEmpty() || !added.isEmpty() )
+		{
+			edits.add( new Edit<E>( index, Collections.unmodifiableList( new ArrayList<E>( removed ) ),
+					Collections.unmodifiableList( new ArrayList<E>( added ) ) ) );
+		}
+	}
+
+	private static void hash( List<?> elements, int[] ids, Map<Equivalence.Wrapper<Object>, Integer> idMap,
+			Equivalence<Object> equivalence )
+	{
+		int i = 0;
+		for( Object element : elements )
+		{
+			Equivalence.Wrapper<Object> key = equivalence.wrap( element );
+			Integer id = idMap.get( key );
+			if( id == null )
+			{
+				id = idMap.size();
+				idMap.put( key, id );
+			}
+			ids[i++] = id;
+		}
+	}
+
+	/**
+	 * Finds a longest common subsequence of a and b using Myers' algorithm. Returns an array holding, for each index
+	 * of a, the matching index of b or -1, or null if the edit distance exceeds the limits.
+	 */
+	private static int[] match( int[] a, int[] b )
+	{
+		int n = a.length;
+		int m = b.length;
+		int max = ( int )Math.min( Math.min( n + m, MAX_EDIT_DISTANCE ), Math.max( 1, MAX_COST / ( n + m ) ) );
+		int offset = max + 1;
+		int[] v = new int[2 * max + 3];
+		List<int[]> trace = new ArrayList<>();
+
+		int d;
+		found: for( d = 0; d <= max; d++ )
+		{
+			// Only the diagonals -d..d are relevant for backtracking, so keep just those.
+			trace.add( Arrays.copyOfRange( v, offset - d, offset + d + 1 ) );
+			for( int k = -d; k <= d; k += 2 )
+			{
+				int x;
+				if( k == -d || ( k != d && v[offset + k - 1] < v[offset + k + 1] ) )
+				{
+					x = v[offset + k + 1];
+				}
+				else
+				{
+					x = v[offset + k - 1] + 1;
+				}
+				int y = x - k;
+				while( x < n && y < m && a[x] == b[y] )
+				{
+					x++;
+					y++;
+				}
+				v[offset + k] = x;
+				if( x >= n && y >= m )
+				{
+					break found;
+				}
+			}
+		}
+		if( d > max )
+		{
+			return null;
+		}
+
+		int[] matches = new int[n];
+		Arrays.fill( matches, -1 );
+		int x = n;
+		int y = m;
+		for( ; d > 0; d-- )
+		{
+			// The snapshot taken at the start of round d holds the diagonals -d..d at index k + d.
+			int[] previous = trace.get( d );
+			int k = x - y;
+			boolean down = k == -d || ( k != d && previous[k - 1 + d] < previous[k + 1 + d] );
+			int previousK = down ? k + 1 : k - 1;
+			int previousX = previous[previousK + d];
+			int snakeStart = down ? previousX : previousX + 1;
+			while( x > snakeStart )
+			{
+				x--;
+				y--;
+				matches[x] = y;
+			}
+			x = previousX;
+			y = previousX - previousK;
+		}
+		while( x > 0 )
+		{
+			x--;
+			y--;
+			matches[x] = y;
+		}
+
+		return matches;
+	}
+}
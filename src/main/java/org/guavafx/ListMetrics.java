@@ -0,0 +1,229 @@
+/*
+ * Copyright 2013 SmartBear Software
+ *
+ * Licensed under the EUPL, Version 1.1 or - as soon they will be approved by the European Commission - subsequent
+ * versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is
+ * distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the Licence for the specific language governing permissions and limitations
+ * under the Licence.
+ */
+package org.guavafx;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javafx.collections.ListChangeListener;
+
+import com.google.common.cache.CacheStats;
+
+/**
+ * The metrics recorded for a single DerivedObservableList while Instrumentation is enabled. The list is only weakly
+ * referenced, so that registering it doesn't keep it alive.
+ */
+final class ListMetrics implements ListMetricsMXBean
+{
+	static final int HISTOGRAM_BUCKETS = 20;
+
+	private final Reference list;
+	private final String type;
+	private volatile String name;
+	private volatile int size;
+
+	private final AtomicLong recomputeCount = new AtomicLong();
+	private final AtomicLong totalRecomputeNanos = new AtomicLong();
+	private final AtomicLongArray histogram = new AtomicLongArray( HISTOGRAM_BUCKETS );
+	private final AtomicLong incomingChangeCount = new AtomicLong();
+	private final AtomicLong incomingChangeSize = new AtomicLong();
+	private final AtomicLong outgoingChangeCount = new AtomicLong();
+	private final AtomicLong outgoingChangeSize = new AtomicLong();
+
+	ListMetrics( DerivedObservableList<?> list, String name, ReferenceQueue<DerivedObservableList<?>> queue )
+	{
+		this.list = new Reference( list, queue, this );
+		this.type = list.getClass().getSimpleName();
+		this.name = name;
+	}
+
+	void setName( String name )
+	{
+		this.name = name;
+	}
+
+	/**
+	 * Records a change of a source of the list.
+	 */
+	void recordIncoming( ListChangeListener.Change<?> change )
+	{
+		incomingChangeCount.incrementAndGet();
+		incomingChangeSize.addAndGet( sizeOf( change ) );
+	}
+
+	/**
+	 * Records a recompute, along with the resulting change, which is null if the list didn't change.
+	 */
+	void recordRecompute( long nanos, ListChangeListener.Change<?> change, int size )
+	{
+		this.size = size;
+		recomputeCount.incrementAndGet();
+		totalRecomputeNanos.addAndGet( nanos );
+		histogram.incrementAndGet( bucketOf( nanos ) );
+		if( change != null )
+		{
+			outgoingChangeCount.incrementAndGet();
+			outgoingChangeSize.addAndGet( sizeOf( change ) );
+		}
+	}
+
+	private static int bucketOf( long nanos )
+	{
+		long micros = nanos / 1000;
+		int bucket = 64 - Long.numberOfLeadingZeros( micros );
+		return Math.min( bucket, HISTOGRAM_BUCKETS - 1 );
+	}
+
+	/**
+	 * Counts the elements affected by a change, leaving the change reset.
+	 */
+	private static int sizeOf( ListChangeListener.Change<?> change )
+	{
+		int size = 0;
+		while( change.next() )
+		{
+			if( change.wasPermutated() || change.wasUpdated() )
+			{
+				size += change.getTo() - change.getFrom();
+			}
+			else
+			{
+				size += change.getAddedSize() + change.getRemovedSize();
+			}
+		}
+		change.reset();
+		return size;
+	}
+
+	@Override
+	public String getName()
+	{
+		return name;
+	}
+
+	@Override
+	public String getType()
+	{
+		return type;
+	}
+
+	@Override
+	public int getSize()
+	{
+		return size;
+	}
+
+	@Override
+	public long getRecomputeCount()
+	{
+		return recomputeCount.get();
+	}
+
+	@Override
+	public long getTotalRecomputeNanos()
+	{
+		return totalRecomputeNanos.get();
+	}
+
+	@Override
+	public long[] getRecomputeTimeHistogram()
+	{
+		long[] counts = new long[HISTOGRAM_BUCKETS];
+		for( int i = 0; i < counts.length; i++ )
+		{
+			counts[i] = histogram.get( i );
+		}
+		return counts;
+	}
+
+	@Override
+	public long getIncomingChangeCount()
+	{
+		return incomingChangeCount.get();
+	}
+
+	@Override
+	public long getIncomingChangeSize()
+	{
+		return incomingChangeSize.get();
+	}
+
+	@Override
+	public long getOutgoingChangeCount()
+	{
+		return outgoingChangeCount.get();
+	}
+
+	@Override
+	public long getOutgoingChangeSize()
+	{
+		return outgoingChangeSize.get();
+	}
+
+	@Override
+	public double getCacheHitRate()
+	{
+		DerivedObservableList<?> derived = list.get();
+		CacheStats stats = derived == null ? null : derived.getCacheStats();
+		return stats == null || stats.requestCount() == 0 ? Double.NaN : stats.hitRate();
+	}
+
+	@Override
+	public int getPendingUpdateCount()
+	{
+		DerivedObservableList<?> derived = list.get();
+		return derived == null ? -1 : derived.getPendingUpdateCount();
+	}
+
+	@Override
+	public void reset()
+	{
+		recomputeCount.set( 0 );
+		totalRecomputeNanos.set( 0 );
+		for( int i = 0; i < HISTOGRAM_BUCKETS; i++ )
+		{
+			histogram.set( i, 0 );
+		}
+		incomingChangeCount.set( 0 );
+		incomingChangeSize.set( 0 );
+		outgoingChangeCount.set( 0 );
+		outgoingChangeSize.set( 0 );
+	}
+
+	@Override
+	public String toString()
+	{
+		return name + " (" + type + ")";
+	}
+
+	/**
+	 * A weak reference to the list, which knows its metrics, so that they can be unregistered once the list has been
+	 * collected.
+	 */
+	static final class Reference extends WeakReference<DerivedObservableList<?>>
+	{
+		final ListMetrics metrics;
+
+		private Reference( DerivedObservableList<?> list, ReferenceQueue<DerivedObservableList<?>> queue,
+				ListMetrics metrics )
+		{
+			super( list, queue );
+			this.metrics = metrics;
+		}
+	}
+}
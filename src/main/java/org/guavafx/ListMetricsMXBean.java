@@ -0,0 +1,89 @@
+/*
+ * Copyright 2013 SmartBear Software
+ *
+ * Licensed under the EUPL, Version 1.1 or - as soon they will be approved by the European Commission - subsequent
+ * versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is
+ * distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the Licence for the specific language governing permissions and limitations
+ * under the Licence.
+ */
+package org.guavafx;
+
+/**
+ * The metrics of an instrumented list, as exported over JMX by Instrumentation.
+ *
+ * A recompute is a single update of the list in response to changes of its sources, whether or not it resulted in a
+ * change of its own. Change sizes are counted in elements: added plus removed elements for structural changes, and
+ * the length of the affected range for permutations and updates.
+ */
+public interface ListMetricsMXBean
+{
+	/**
+	 * Returns the name the list is registered under.
+	 *
+	 * @return
+	 */
+	String getName();
+
+	/**
+	 * Returns the kind of list, e.g. FilteredList.
+	 *
+	 * @return
+	 */
+	String getType();
+
+	/**
+	 * Returns the size of the list after its last recompute.
+	 *
+	 * @return
+	 */
+	int getSize();
+
+	long getRecomputeCount();
+
+	long getTotalRecomputeNanos();
+
+	/**
+	 * Returns a histogram of the recompute times, where bucket i counts the recomputes which took less than 2^i
+	 * microseconds (and at least 2^(i-1)), and the last bucket counts all the slower ones.
+	 *
+	 * @return
+	 */
+	long[] getRecomputeTimeHistogram();
+
+	long getIncomingChangeCount();
+
+	long getIncomingChangeSize();
+
+	long getOutgoingChangeCount();
+
+	long getOutgoingChangeSize();
+
+	/**
+	 * Returns the hit rate of the cache of a list created by transform(), or NaN for other lists or if no statistics
+	 * are recorded.
+	 *
+	 * @return
+	 */
+	double getCacheHitRate();
+
+	/**
+	 * Returns the number of updates of this list waiting to run on the FX thread, or -1 for lists which are updated
+	 * synchronously. This is the number of source changes not yet published for a list created by fx(), optimize() or
+	 * fromExpression(), and the number of transformed values not yet published for one created by transformAsync().
+	 *
+	 * @return
+	 */
+	int getPendingUpdateCount();
+
+	/**
+	 * Resets all counters and the histogram.
+	 */
+	void reset();
+}
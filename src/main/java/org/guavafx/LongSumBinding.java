@@ -0,0 +1,122 @@
+/*
+ * Copyright 2013 SmartBear Software
+ *
+ * Licensed under the EUPL, Version 1.1 or - as soon they will be approved by the European Commission - subsequent
+ * versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is
+ * distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the Licence for the specific language governing permissions and limitations
+ * under the Licence.
+ */
+package org.guavafx;
+
+import java.util.List;
+
+import javafx.beans.binding.LongBinding;
+import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import javafx.collections.WeakListChangeListener;
+
+/**
+ * An ObservableLongValue containing the sum of the long values of the elements of a source list, as created by
+ * ObservableLists.sumLong(). Null elements count as zero.
+ *
+ * The sum is kept in a primitive long, and only the added and removed elements of a change are visited, so each change
+ * costs O(change size) without boxing. Since the old values of updated elements are unknown, an update causes the sum
+ * to be recomputed from scratch.
+ */
+final class LongSumBinding extends LongBinding
+{
+	private final ObservableList<? extends Number> source;
+	private long sum;
+
+	private final ListChangeListener<Number> sourceListener = new ListChangeListener<Number>()
+	{
+		@Override
+		public void onChanged( ListChangeListener.Change<? extends Number> change )
+		{
+			boolean updated = false;
+			while( change.next() )
+			{
+				if( change.wasUpdated() )
+				{
+					updated = true;
+				}
+				else if( !change.wasPermutated() )
+				{
+					List<? extends Number> removed = change.getRemoved();
+					for( int i = 0; i < removed.size(); i++ )
+					{
+						deduct( valueOf( removed.get( i ) ) );
+					}
+					List<? extends Number> list = change.getList();
+					for( int i = change.getFrom(); i < change.getTo(); i++ )
+					{
+						accumulate( valueOf( list.get( i ) ) );
+					}
+				}
+			}
+			if( updated )
+			{
+				recompute();
+			}
+			invalidate();
+		}
+	};
+	private final ListChangeListener<Number> weakSourceListener = new WeakListChangeListener<>( sourceListener );
+
+	LongSumBinding( ObservableList<? extends Number> source )
+	{
+		this.source = source;
+		recompute();
+		source.addListener( weakSourceListener );
+	}
+
+	@Override
+	protected long computeValue()
+	{
+		return sum;
+	}
+
+	@Override
+	public ObservableList<?> getDependencies()
+	{
+		return FXCollections.singletonObservableList( source );
+	}
+
+	@Override
+	public void dispose()
+	{
+		source.removeListener( weakSourceListener );
+	}
+
+	private void recompute()
+	{
+		sum = 0;
+		for( int i = 0; i < source.size(); i++ )
+		{
+			accumulate( valueOf( source.get( i ) ) );
+		}
+	}
+
+	private void accumulate( long value )
+	{
+		sum += value;
+	}
+
+	private void deduct( long value )
+	{
+		sum -= value;
+	}
+
+	private static long valueOf( Number number )
+	{
+		return number == null ? 0 : number.longValue();
+	}
+}
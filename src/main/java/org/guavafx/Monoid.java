@@ -0,0 +1,104 @@
+/*
+ * Copyright 2013 SmartBear Software
+ *
+ * Licensed under the EUPL, Version 1.1 or - as soon they will be approved by the European Commission - subsequent
+ * versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is
+ * distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the Licence for the specific language governing permissions and limitations
+ * under the Licence.
+ */
+package org.guavafx;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Comparator;
+
+/**
+ * An associative operation with an identity, used by ObservableLists.reduce() to combine the elements of a list. The
+ * operation doesn't need to be commutative, as elements are always combined in list order, nor invertible, as the
+ * partial results are kept in a segment tree.
+ */
+public abstract class Monoid<T>
+{
+	/**
+	 * Returns the result of combining no elements, which must leave any element unchanged when combined with it.
+	 *
+	 * @return
+	 */
+	public abstract T identity();
+
+	/**
+	 * Combines two elements or partial results, where left comes before right in the list.
+	 *
+	 * @param left
+	 * @param right
+	 * @return
+	 */
+	public abstract T combine( T left, T right );
+
+	/**
+	 * Returns a Monoid selecting the least element according to the comparator, or the first of several least
+	 * elements. The identity is null, so reducing an empty list yields null, and null elements are ignored.
+	 *
+	 * @param comparator
+	 * @return
+	 */
+	public static <T> Monoid<T> min( final Comparator<? super T> comparator )
+	{
+		checkNotNull( comparator, "comparator" );
+		return new Monoid<T>()
+		{
+			@Override
+			public T identity()
+			{
+				return null;
+			}
+
+			@Override
+			public T combine( T left, T right )
+			{
+				if( left == null || right == null )
+				{
+					return left == null ? right : left;
+				}
+				return comparator.compare( left, right ) <= 0 ? left : right;
+			}
+		};
+	}
+
+	/**
+	 * Returns a Monoid selecting the greatest element according to the comparator, or the first of several greatest
+	 * elements. The identity is null, so reducing an empty list yields null, and null elements are ignored.
+	 *
+	 * @param comparator
+	 * @return
+	 */
+	public static <T> Monoid<T> max( final Comparator<? super T> comparator )
+	{
+		checkNotNull( comparator, "comparator" );
+		return new Monoid<T>()
+		{
+			@Override
+			public T identity()
+			{
+				return null;
+			}
+
+			@Override
+			public T combine( T left, T right )
+			{
+				if( left == null || right == null )
+				{
+					return left == null ? right : left;
+				}
+				return comparator.compare( left, right ) >= 0 ? left : right;
+			}
+		};
+	}
+}
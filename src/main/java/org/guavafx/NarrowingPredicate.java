@@ -0,0 +1,35 @@
+/*
+ * Copyright 2013 SmartBear Software
+ *
+ * Licensed under the EUPL, Version 1.1 or - as soon they will be approved by the European Commission - subsequent
+ * versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is
+ * distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the Licence for the specific language governing permissions and limitations
+ * under the Licence.
+ */
+package org.guavafx;
+
+import com.google.common.base.Predicate;
+
+/**
+ * A Predicate which knows when it is stricter than another one, e.g. a search for "abc" compared to a search for "ab".
+ * When the predicate of a list created by ObservableLists.filter( list, ObservableValue ) is replaced by a predicate
+ * which narrows the previous one, only the elements currently in the filtered list are re-checked, since no other
+ * element can pass the new predicate.
+ */
+public interface NarrowingPredicate<T> extends Predicate<T>
+{
+	/**
+	 * Returns true if every element accepted by this predicate is also accepted by the previous one.
+	 *
+	 * @param previous
+	 * @return
+	 */
+	boolean narrows( Predicate<?> previous );
+}
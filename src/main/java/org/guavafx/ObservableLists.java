@@ -15,41 +15,46 @@
  */
 package org.guavafx;
 
-import static com.google.common.base.Predicates.in;
-import static com.google.common.base.Predicates.not;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.collect.Sets.newHashSet;
 
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javafx.application.Platform;
 import javafx.beans.InvalidationListener;
 import javafx.beans.Observable;
 import javafx.beans.WeakInvalidationListener;
+import javafx.beans.value.ObservableDoubleValue;
+import javafx.beans.value.ObservableIntegerValue;
+import javafx.beans.value.ObservableLongValue;
+import javafx.beans.value.ObservableValue;
 import javafx.collections.FXCollections;
 import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
+import javafx.collections.ObservableMap;
 import javafx.collections.WeakListChangeListener;
 import javafx.scene.Node;
 
 import com.google.common.base.Function;
+import com.google.common.base.Functions;
 import com.google.common.base.Predicate;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
 import com.google.common.cache.LoadingCache;
-import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
-import com.google.common.collect.Ordering;
 import com.google.common.collect.Sets;
 
 /**
@@ -70,7 +75,11 @@ public class ObservableLists
 	 */
 
 	/**
-	 * Creates an ObservableList of transformed elements from a given list.
+	 * Creates an ObservableList of transformed elements from a given list. The
+	 * function is only applied to elements as they are added to the original
+	 * list, and the results are cached so that re-adding an element yields the
+	 * same transformed value. The cache is described by
+	 * TransformCacheSpec.defaults().
 	 * 
 	 * @param original
 	 * @param function
@@ -78,34 +87,123 @@ public class ObservableLists
 	 */
 	public static <F, T> ObservableList<T> transform( final ObservableList<F> original, final Function<F, T> function )
 	{
-		final ListeningList<F, T> listeningList = new ListeningList<>( original );
+		return transform( original, function, TransformCacheSpec.defaults() );
+	}
 
-		final LoadingCache<F, T> cache = CacheBuilder.newBuilder().weakKeys().softValues().build( new CacheLoader<F, T>()
-		{
-			@Override
-			public T load( F key ) throws Exception
-			{
-				return function.apply( key );
-			}
-		} );
+	/**
+	 * Like transform( original, function ), but memoizes the results of the
+	 * function as described by the given TransformCacheSpec.
+	 * 
+	 * @param original
+	 * @param function
+	 * @param cacheSpec
+	 * @return
+	 */
+	public static <F, T> ObservableList<T> transform( final ObservableList<F> original,
+			final Function<F, T> function, TransformCacheSpec cacheSpec )
+	{
+		return transform( original, function, cacheSpec, BulkEvaluation.serial() );
+	}
 
-		final InvalidationListener listener = new InvalidationListener()
-		{
-			@Override
-			public void invalidated( Observable _ )
-			{
-				listeningList.list.setAll( Lists.newArrayList( Iterables.transform( original, cache ) ) );
-			}
-		};
-		listeningList.addListener( listener );
-		listener.invalidated( original );
+	/**
+	 * Like transform( original, function, cacheSpec ), but applies the
+	 * function to the elements added by a change as described by the given
+	 * BulkEvaluation, e.g. in parallel when a large number of elements are
+	 * added at once. The function must be thread safe to be used in parallel.
+	 * 
+	 * @param original
+	 * @param function
+	 * @param cacheSpec
+	 * @param bulkEvaluation
+	 * @return
+	 */
+	public static <F, T> ObservableList<T> transform( final ObservableList<F> original,
+			final Function<F, T> function, TransformCacheSpec cacheSpec, BulkEvaluation bulkEvaluation )
+	{
+		return new TransformedList<>( original, cacheSpec.memoize( function ), bulkEvaluation );
+	}
+
+	/**
+	 * Like transform( original, function ), but also observes the Observables
+	 * returned by the extractor for each element, e.g. its properties. When
+	 * one of them is invalidated, the function is re-applied to that element
+	 * only, and the new value is reported as a single set, or as an update if
+	 * the value is the same. The listeners are removed from elements which
+	 * are removed from the original list. Since the results depend on the
+	 * state of the elements, they are not memoized: an element which is
+	 * removed and re-added is transformed again.
+	 * 
+	 * @param original
+	 * @param function
+	 * @param extractor
+	 * @return
+	 */
+	public static <F, T> ObservableList<T> transform( final ObservableList<F> original,
+			final Function<F, T> function, Function<? super F, ? extends Observable[]> extractor )
+	{
+		return new TransformedList<>( original, function, BulkEvaluation.serial(), checkNotNull( extractor ) );
+	}
+
+	/**
+	 * Creates an ObservableList of transformed elements from a given list,
+	 * where the function is applied using the given Executor, e.g. a pool of
+	 * worker threads. Each added element is represented by the placeholder
+	 * until its transformed value is ready. Completed values are set on the FX
+	 * thread, several at a time, in a single change. Values for elements which
+	 * were removed while being transformed are discarded. If the function
+	 * fails, the exception is reported to the uncaught exception handler of
+	 * the executing thread, and the element keeps the placeholder until it is
+	 * updated or replaced, which retries it.
+	 * 
+	 * @param original
+	 * @param function
+	 * @param executor
+	 * @param placeholder
+	 * @return
+	 */
+	public static <F, T> ObservableList<T> transformAsync( final ObservableList<F> original,
+			final Function<? super F, ? extends T> function, Executor executor, T placeholder )
+	{
+		return transformAsync( original, function, executor, placeholder, FxDispatcher.getDefault() );
+	}
 
-		return listeningList.readOnlyList;
+	/**
+	 * Like transformAsync( original, function, executor, placeholder ), but
+	 * publishes the transformed values using the given FxDispatcher.
+	 * 
+	 * @param original
+	 * @param function
+	 * @param executor
+	 * @param placeholder
+	 * @param dispatcher
+	 * @return
+	 */
+	public static <F, T> ObservableList<T> transformAsync( final ObservableList<F> original,
+			final Function<? super F, ? extends T> function, Executor executor, T placeholder, FxDispatcher dispatcher )
+	{
+		return new AsyncTransformedList<F, T>( original, function, checkNotNull( executor ), dispatcher, placeholder );
+	}
+
+	/**
+	 * Returns the statistics of the cache used by a list created by
+	 * transform(). The statistics are only recorded if requested using
+	 * TransformCacheSpec.recordStats(), and are empty if the list has no cache.
+	 * 
+	 * @param transformed
+	 * @return
+	 */
+	public static CacheStats transformCacheStats( ObservableList<?> transformed )
+	{
+		checkArgument( transformed instanceof TransformedList, "Not a list created by transform()" );
+		CacheStats stats = ( ( TransformedList<?, ?> )transformed ).getCacheStats();
+		return stats == null ? new CacheStats( 0, 0, 0, 0, 0, 0 ) : stats;
 	}
 
 	/**
 	 * Creates an ObservableList which contains all elements in the original list
-	 * which satisfy the given condition.
+	 * which satisfy the given condition. Changes to the original list are
+	 * translated into the corresponding changes of the filtered list, so the
+	 * condition is only evaluated for added and updated elements.
 	 * 
 	 * @param original
 	 * @param condition
@@ -113,138 +211,398 @@ public class ObservableLists
 	 */
 	public static <E> ObservableList<E> filter( final ObservableList<E> original, final Predicate<E> condition )
 	{
-		final ListeningList<E, E> listeningList = new ListeningList<>( original );
-		listeningList.addListener( new InvalidationListener()
-		{
-			@Override
-			public void invalidated( Observable _ )
-			{
-				listeningList.list.setAll( Lists.newArrayList( Iterables.filter( original, condition ) ) );
-			}
-		} );
-		listeningList.list.setAll( Lists.newArrayList( Iterables.filter( original, condition ) ) );
+		return filter( original, condition, BulkEvaluation.serial() );
+	}
+
+	/**
+	 * Like filter( original, condition ), but evaluates the condition for the
+	 * elements added by a change as described by the given BulkEvaluation,
+	 * e.g. in parallel when a large number of elements are added at once. The
+	 * condition must be thread safe to be used in parallel.
+	 * 
+	 * @param original
+	 * @param condition
+	 * @param bulkEvaluation
+	 * @return
+	 */
+	public static <E> ObservableList<E> filter( final ObservableList<E> original, final Predicate<E> condition,
+			BulkEvaluation bulkEvaluation )
+	{
+		return new FilteredList<>( original, condition, bulkEvaluation );
+	}
 
-		return listeningList.readOnlyList;
+	/**
+	 * Like filter( original, condition ), but also observes the Observables
+	 * returned by the extractor for each element, e.g. its properties. When
+	 * one of them is invalidated, the condition is re-evaluated for that
+	 * element only, which is reported as a single add, remove or update. The
+	 * listeners are removed from elements which are removed from the original
+	 * list.
+	 * 
+	 * @param original
+	 * @param condition
+	 * @param extractor
+	 * @return
+	 */
+	public static <E> ObservableList<E> filter( final ObservableList<E> original, final Predicate<E> condition,
+			Function<? super E, ? extends Observable[]> extractor )
+	{
+		return new FilteredList<>( original, condition, BulkEvaluation.serial(), checkNotNull( extractor ) );
+	}
+
+	/**
+	 * Creates an ObservableList which contains all elements in the original
+	 * list which satisfy the current value of the given condition. When the
+	 * condition changes, all elements are re-evaluated once, and only the
+	 * elements which enter or leave the filtered list are reported. If the
+	 * new condition is a NarrowingPredicate which narrows the previous one,
+	 * only the elements currently in the filtered list are re-evaluated.
+	 * 
+	 * @param original
+	 * @param condition
+	 * @return
+	 */
+	public static <E> ObservableList<E> filter( final ObservableList<E> original,
+			final ObservableValue<? extends Predicate<? super E>> condition )
+	{
+		return new FilteredList<>( original, condition, BulkEvaluation.serial() );
+	}
+
+	/**
+	 * Creates an ObservableList containing the elements of the original list,
+	 * sorted by the given comparator. Inserting, removing and looking up
+	 * elements is O(log n), and each change of the original list is reported
+	 * as the corresponding changes of the sorted positions, in a single pass
+	 * over the sorted list when it touches many elements. Equal elements are
+	 * kept in the order of their positions in the original list.
+	 * 
+	 * @param original
+	 * @param comparator
+	 * @return
+	 */
+	public static <E> ObservableList<E> sorted( final ObservableList<E> original, Comparator<? super E> comparator )
+	{
+		return new SortedList<>( original, comparator );
+	}
+
+	/**
+	 * Like sorted( original, comparator ), but sorts by the current value of
+	 * the given ObservableValue. When the comparator changes, the elements are
+	 * re-sorted, which is reported as a single permutation.
+	 * 
+	 * @param original
+	 * @param comparator
+	 * @return
+	 */
+	public static <E> ObservableList<E> sorted( final ObservableList<E> original,
+			ObservableValue<? extends Comparator<? super E>> comparator )
+	{
+		return new SortedList<>( original, comparator );
+	}
+
+	/**
+	 * Groups the elements of the original list by the key computed by the
+	 * given function, returning a read-only ObservableMap from each key to an
+	 * ObservableList of the elements with that key, in their original order.
+	 * Each change of the original list computes the keys of the added and
+	 * updated elements once, and only changes the affected groups. Groups are
+	 * added to and removed from the map as their keys appear and disappear.
+	 * 
+	 * @param original
+	 * @param keyFunction
+	 * @return
+	 */
+	public static <K, E> ObservableMap<K, ObservableList<E>> groupBy( final ObservableList<E> original,
+			final Function<? super E, ? extends K> keyFunction )
+	{
+		return new GroupedMap<>( original, keyFunction );
+	}
+
+	/**
+	 * Returns a view of at most size elements of the original list, starting
+	 * at the given offset. Changes of the original list are only reported if
+	 * they intersect the window, and moving the offset is reported as removing
+	 * and adding the elements which leave and enter the window, so the work
+	 * done by listeners is proportional to the size of the window rather than
+	 * that of the original list.
+	 * 
+	 * @param original
+	 * @param offset
+	 * @param size
+	 * @return
+	 */
+	public static <E> ObservableList<E> window( final ObservableList<E> original, ObservableIntegerValue offset,
+			int size )
+	{
+		checkArgument( size >= 0, "size must not be negative" );
+		return new WindowList<>( original, offset, size );
+	}
+
+	/**
+	 * Returns the sum of the long values of the elements of the original
+	 * list, kept up to date incrementally: each change only visits the added
+	 * and removed elements, without boxing. Null elements count as zero.
+	 * 
+	 * @param original
+	 * @return
+	 */
+	public static ObservableLongValue sumLong( final ObservableList<? extends Number> original )
+	{
+		return new LongSumBinding( original );
+	}
+
+	/**
+	 * Returns the sum of the double values of the elements of the original
+	 * list, kept up to date in the same way as sumLong(). Rounding errors are
+	 * compensated for, so that removing elements doesn't make the sum drift.
+	 * 
+	 * @param original
+	 * @return
+	 */
+	public static ObservableDoubleValue sumDouble( final ObservableList<? extends Number> original )
+	{
+		return new DoubleSumBinding( original );
+	}
+
+	/**
+	 * Returns the number of elements of the original list which satisfy the
+	 * given condition. The condition is only evaluated for added and updated
+	 * elements.
+	 * 
+	 * @param original
+	 * @param condition
+	 * @return
+	 */
+	public static <E> ObservableIntegerValue count( final ObservableList<E> original,
+			final Predicate<? super E> condition )
+	{
+		return new CountBinding<>( original, checkNotNull( condition ) );
+	}
+
+	/**
+	 * Returns the least element of the original list according to the
+	 * comparator, or null if it is empty. Each added, removed or updated
+	 * element costs O(log n).
+	 * 
+	 * @param original
+	 * @param comparator
+	 * @return
+	 */
+	public static <E> ObservableValue<E> min( final ObservableList<? extends E> original,
+			Comparator<? super E> comparator )
+	{
+		return reduce( original, Monoid.<E> min( comparator ) );
+	}
+
+	/**
+	 * Returns the greatest element of the original list according to the
+	 * comparator, or null if it is empty. Each added, removed or updated
+	 * element costs O(log n).
+	 * 
+	 * @param original
+	 * @param comparator
+	 * @return
+	 */
+	public static <E> ObservableValue<E> max( final ObservableList<? extends E> original,
+			Comparator<? super E> comparator )
+	{
+		return reduce( original, Monoid.<E> max( comparator ) );
+	}
+
+	/**
+	 * Returns the combination of all elements of the original list, in order,
+	 * according to the given Monoid. Partial results are kept in a segment
+	 * tree, so each added, removed or updated element costs O(log n), and the
+	 * monoid doesn't need to be invertible or commutative.
+	 * 
+	 * @param original
+	 * @param monoid
+	 * @return
+	 */
+	public static <E> ObservableValue<E> reduce( final ObservableList<? extends E> original, Monoid<E> monoid )
+	{
+		return new ReducedValue<>( original, checkNotNull( monoid ) );
 	}
 
 	/**
 	 * Returns an unmodifiable view of the given ObservableList, where all
-	 * modifications are guaranteed to be done in the FX thread.
+	 * modifications are guaranteed to be done in the FX thread. Changes made
+	 * outside of the FX thread are coalesced by the default FxDispatcher, so
+	 * that at most one update per list is pending at any time.
 	 * 
 	 * @param originalList
 	 * @return
 	 */
 	public static <E> ObservableList<E> fx( final ObservableList<E> original )
 	{
-		final ListeningList<E, E> listeningList = new ListeningList<>( original );
-		final InvalidationListener listener = new InvalidationListener()
-		{
-			@Override
-			public void invalidated( Observable _ )
-			{
-				final ImmutableList<E> elements = ImmutableList.copyOf( original );
-				if( Platform.isFxApplicationThread() )
-				{
-					listeningList.list.setAll( elements );
-				}
-				else
-				{
-					Platform.runLater( new Runnable()
-					{
-						@Override
-						public void run()
-						{
-							listeningList.list.setAll( elements );
-						}
-					} );
-				}
-			}
-		};
-		listeningList.addListener( listener );
-		listener.invalidated( original );
+		return fx( original, FxDispatcher.getDefault() );
+	}
 
-		return listeningList.readOnlyList;
+	/**
+	 * Returns an unmodifiable copy of the given ObservableList, which is
+	 * updated on the FX thread at most once per interval. The first change
+	 * after a quiet period is published as soon as possible; later changes are
+	 * accumulated and published together as one change.
+	 * 
+	 * @param original
+	 * @param interval
+	 * @param unit
+	 * @return
+	 */
+	public static <E> ObservableList<E> throttle( final ObservableList<E> original, long interval, TimeUnit unit )
+	{
+		return throttle( original, interval, unit, Scheduler.fxThread() );
 	}
 
 	/**
-	 * Returns an unmodifiable view of the given ObservableList, where all
-	 * modifications are optimized.
+	 * Like throttle( original, interval, unit ), but updates the copy on the
+	 * thread of the given Scheduler, using its clock.
 	 * 
-	 * @param originalList
+	 * @param original
+	 * @param interval
+	 * @param unit
+	 * @param scheduler
 	 * @return
 	 */
-	public static <E> ObservableList<E> optimize( final ObservableList<E> originalList )
+	public static <E> ObservableList<E> throttle( final ObservableList<E> original, long interval, TimeUnit unit,
+			Scheduler scheduler )
 	{
-		final ListeningList<E, E> listeningList = new ListeningList<>( originalList );
-		final InvalidationListener listener = new InvalidationListener()
-		{
-			private int syncNumber = 0;
+		return new ThrottledList<>( original, interval, unit, scheduler, false );
+	}
 
-			private void synchronize( int sync )
-			{
-				if( syncNumber == sync )
-				{
-					listeningList.list.retainAll( originalList );
+	/**
+	 * Returns an unmodifiable copy of the given ObservableList, which is
+	 * updated on the FX thread once the original list has not changed for the
+	 * given quiet period. All changes made until then are published together
+	 * as one change.
+	 * 
+	 * @param original
+	 * @param quiet
+	 * @param unit
+	 * @return
+	 */
+	public static <E> ObservableList<E> debounce( final ObservableList<E> original, long quiet, TimeUnit unit )
+	{
+		return debounce( original, quiet, unit, Scheduler.fxThread() );
+	}
 
-					Ordering<E> ordering = Ordering.explicit( originalList );
-					FXCollections.sort( listeningList.list, ordering );
+	/**
+	 * Like debounce( original, quiet, unit ), but updates the copy on the
+	 * thread of the given Scheduler, using its clock.
+	 * 
+	 * @param original
+	 * @param quiet
+	 * @param unit
+	 * @param scheduler
+	 * @return
+	 */
+	public static <E> ObservableList<E> debounce( final ObservableList<E> original, long quiet, TimeUnit unit,
+			Scheduler scheduler )
+	{
+		return new ThrottledList<>( original, quiet, unit, scheduler, true );
+	}
 
-					List<E> elementsToAdd = Lists.newArrayList( Iterables.filter( originalList,
-							not( in( listeningList.list ) ) ) );
-					Collections.sort( elementsToAdd, ordering );
-					for( E element : elementsToAdd )
-					{
-						listeningList.list.add( originalList.indexOf( element ), element );
-					}
-				}
-			}
+	/**
+	 * Returns an unmodifiable view of the given ObservableList, where all
+	 * modifications are guaranteed to be done in the FX thread, using the given
+	 * FxDispatcher to coalesce and rate limit the updates.
+	 * 
+	 * @param original
+	 * @param dispatcher
+	 * @return
+	 */
+	public static <E> ObservableList<E> fx( final ObservableList<E> original, final FxDispatcher dispatcher )
+	{
+		return new FxList<>( original, dispatcher );
+	}
 
-			@Override
-			public void invalidated( Observable _ )
-			{
-				final int nextSync = ++syncNumber;
-				Platform.runLater( new Runnable()
-				{
-					@Override
-					public void run()
-					{
-						synchronize( nextSync );
-					}
-				} );
-			}
-		};
-		listeningList.addListener( listener );
-		listeningList.list.setAll( originalList );
+	/**
+	 * Returns an unmodifiable view of the given ObservableList, where all
+	 * modifications are optimized. Changes are collected until the FX thread
+	 * gets to run, after which the view is updated with the minimal change
+	 * needed to make it equal to the original list, as computed by diff().
+	 * 
+	 * @param originalList
+	 * @return
+	 */
+	public static <E> ObservableList<E> optimize( final ObservableList<E> originalList )
+	{
+		return new OptimizedList<>( originalList );
+	}
 
-		return listeningList.readOnlyList;
+	/**
+	 * Computes a near-minimal edit script which transforms the first list into
+	 * the second, which can be applied to a list using ListDiff.applyTo().
+	 * 
+	 * @param from
+	 * @param to
+	 * @return
+	 */
+	public static <E> ListDiff<E> diff( List<? extends E> from, List<? extends E> to )
+	{
+		return ListDiff.compute( from, to );
 	}
 
+	/**
+	 * Creates an ObservableList containing the result of evaluating the given
+	 * expression, which is re-evaluated whenever any of the given observables
+	 * are invalidated. The expression is evaluated on the FX thread, and
+	 * invalidations occurring outside of the FX thread are coalesced into a
+	 * single evaluation.
+	 * 
+	 * @param expression
+	 * @param observables
+	 * @return
+	 */
 	public static <E, T extends Iterable<E>> ObservableList<E> fromExpression( Callable<T> expression,
 			ObservableList<? extends Observable> observables )
 	{
-		return new ExpressionList<E>( expression, observables ).readOnlyList;
+		return new ExpressionList<E>( expression, observables, null, FxDispatcher.getDefault() );
+	}
+
+	/**
+	 * Like fromExpression( expression, observables ), but evaluates the
+	 * expression using the given Executor, keeping expensive expressions off
+	 * the FX thread. Invalidations occurring during an evaluation cause a
+	 * single re-evaluation once it is done, and only the latest result is
+	 * published to the list, on the FX thread. If an evaluation fails, the
+	 * exception is reported to the uncaught exception handler of the executing
+	 * thread, and the list keeps its previous content.
+	 * 
+	 * @param expression
+	 * @param observables
+	 * @param executor
+	 * @return
+	 */
+	public static <E, T extends Iterable<E>> ObservableList<E> fromExpression( Callable<T> expression,
+			ObservableList<? extends Observable> observables, Executor executor )
+	{
+		return fromExpression( expression, observables, executor, FxDispatcher.getDefault() );
+	}
+
+	/**
+	 * Like fromExpression( expression, observables, executor ), but publishes
+	 * the results using the given FxDispatcher.
+	 * 
+	 * @param expression
+	 * @param observables
+	 * @param executor
+	 * @param dispatcher
+	 * @return
+	 */
+	public static <E, T extends Iterable<E>> ObservableList<E> fromExpression( Callable<T> expression,
+			ObservableList<? extends Observable> observables, Executor executor, FxDispatcher dispatcher )
+	{
+		return new ExpressionList<E>( expression, observables, checkNotNull( executor ), dispatcher );
 	}
 
 	private static final LoadingCache<List<?>, ListChangeListener<?>> contentListeners = CacheBuilder.newBuilder()
 			.weakKeys().weakValues().build( new CacheLoader<List<?>, ListChangeListener<?>>()
 			{
 				@Override
-				@SuppressWarnings( "rawtypes" )
 				public ListChangeListener<?> load( final List<?> list ) throws Exception
 				{
-					return new ListChangeListener()
-					{
-						@Override
-						@SuppressWarnings( "unchecked" )
-						public void onChanged( ListChangeListener.Change change )
-						{
-							while( change.next() )
-							{
-								list.removeAll( change.getRemoved() );
-								list.addAll( change.getAddedSubList() );
-							}
-						}
-					};
+					return new UnorderedContentBinding<>( list );
 				}
 			} );
 
@@ -252,8 +610,9 @@ public class ObservableLists
 	 * Returns a new ObservableList that contains all the elements of the given
 	 * lists, and keeps the new list in sync with any changes to the original
 	 * lists. The order of the elements are guaranteed to correspond to the order
-	 * of the elements in the sublists -- but as a consequence, this method is
-	 * inefficient and recreates the whole list on any change.
+	 * of the elements in the sublists. Changes to a sublist are forwarded with
+	 * shifted indexes, and adding or removing a sublist adds or removes its
+	 * elements.
 	 * 
 	 * @param listsToConcat
 	 * @return
@@ -261,14 +620,26 @@ public class ObservableLists
 	public static final <T> ObservableList<T> concat(
 			final ObservableList<? extends ObservableList<? extends T>> listsToConcat )
 	{
-		return fromExpression( new Callable<Iterable<T>>()
-		{
-			@Override
-			public Iterable<T> call() throws Exception
-			{
-				return Iterables.concat( listsToConcat );
-			}
-		}, listsToConcat );
+		return new ConcatenatedList<ObservableList<? extends T>, T>( listsToConcat,
+				Functions.<ObservableList<? extends T>> identity() );
+	}
+
+	/**
+	 * Maps each element of the original list to an ObservableList, e.g. its
+	 * children, and returns a new ObservableList containing the elements of
+	 * all these lists, in order. The function is applied once per added or
+	 * updated element, and each inner list is listened to, so that changes of
+	 * both the original list and the inner lists are forwarded incrementally,
+	 * with shifted indexes, in the same way as by concat().
+	 * 
+	 * @param original
+	 * @param function
+	 * @return
+	 */
+	public static <F, T> ObservableList<T> flatMap( final ObservableList<F> original,
+			final Function<? super F, ? extends ObservableList<? extends T>> function )
+	{
+		return new ConcatenatedList<F, T>( original, checkNotNull( function ) );
 	}
 
 	@SafeVarargs
@@ -280,10 +651,8 @@ public class ObservableLists
 
 	/**
 	 * Returns a new ObservableList that contains all the elements of the given
-	 * list, with elementToAppend added last. The order of the elements are
-	 * guaranteed to correspond to the order of the elements in the sublists --
-	 * but as a consequence, this method is inefficient and recreates the whole
-	 * list on any change.
+	 * list, with elementToAppend added last. The returned list is a view of the
+	 * given list, which forwards its changes without copying any elements.
 	 * 
 	 * @return
 	 */
@@ -291,28 +660,14 @@ public class ObservableLists
 	public static final <T> ObservableList<T> appendElement( final ObservableList<? extends T> inputList,
 			final T elementToAppend )
 	{
-		final ListeningList<T, T> listeningList = new ListeningList<>( inputList );
-		final InvalidationListener listener = new InvalidationListener()
-		{
-			@Override
-			public void invalidated( Observable _ )
-			{
-				listeningList.list.setAll( inputList );
-				listeningList.list.add( elementToAppend );
-			}
-		};
-		listeningList.addListener( listener );
-		listener.invalidated( inputList );
-
-		return listeningList.readOnlyList;
+		return new AddedElementList<>( inputList, elementToAppend, false );
 	}
 
 	/**
 	 * Returns a new ObservableList that contains all the elements of the given
-	 * list, with elementToPrepend added first. The order of the elements are
-	 * guaranteed to correspond to the order of the elements in the sublists --
-	 * but as a consequence, this method is inefficient and recreates the whole
-	 * list on any change.
+	 * list, with elementToPrepend added first. The returned list is a view of
+	 * the given list, which forwards its changes shifted by one without copying
+	 * any elements.
 	 * 
 	 * @return
 	 */
@@ -320,26 +675,33 @@ public class ObservableLists
 	public static final <T> ObservableList<T> prependElement( final ObservableList<? extends T> inputList,
 			final T elementToPrepend )
 	{
-		final ListeningList<T, T> listeningList = new ListeningList<>( inputList );
-		final InvalidationListener listener = new InvalidationListener()
-		{
-			@Override
-			public void invalidated( Observable _ )
-			{
-				listeningList.list.add( elementToPrepend );
-				listeningList.list.addAll( inputList );
-			}
-		};
-		listeningList.addListener( listener );
-		listener.invalidated( inputList );
+		return new AddedElementList<>( inputList, elementToPrepend, true );
+	}
 
-		return listeningList.readOnlyList;
+	/**
+	 * Returns a modifiable view of the given list which can collapse many
+	 * modifications into a single change event. Modifications made through
+	 * the view, or directly on the given list, between beginChange() and
+	 * endChange(), or during runBatch(), are reported by the view as one
+	 * compound change when the batch ends, so that the lists derived from it
+	 * are updated once per batch rather than once per modification. Outside
+	 * of a batch, changes are forwarded as they are.
+	 * 
+	 * @param list
+	 * @return
+	 */
+	public static <E> BatchedObservableList<E> batched( ObservableList<E> list )
+	{
+		return new BatchedObservableList<>( checkNotNull( list ) );
 	}
 
 	/**
 	 * Like Bindings.bindContent(), but doesn't take ordering into account. This
 	 * means that list1 can be reordered after binding, and the content will
-	 * still stay in sync with list2.
+	 * still stay in sync with list2. Elements are added last, and removed by
+	 * moving the last elements into their place, using an index of the element
+	 * positions, so changes cost O(1) per element. If list1 is a list created
+	 * by batched(), each change of list2 is applied to it as one change.
 	 * 
 	 * @param list1
 	 * @param list2
@@ -360,46 +722,34 @@ public class ObservableLists
 		}
 	}
 
+	/**
+	 * Binds the content of list1 to list2, keeping list1 sorted by the given
+	 * comparator. Changes to list2 are applied incrementally, inserting and
+	 * removing elements at positions found by binary search. Updates of list2
+	 * and invalidations of the given observables, which may change the sort
+	 * keys, move only the elements which are out of order.
+	 * 
+	 * @param list1
+	 * @param list2
+	 * @param comparator
+	 * @param observables
+	 */
 	public static <E> void bindSorted( final List<E> list1, final ObservableList<? extends E> list2,
 			final Comparator<? super E> comparator, Observable... observables )
 	{
-		final InvalidationListener invalidationListener = new InvalidationListener()
-		{
-			@Override
-			public void invalidated( Observable arg0 )
-			{
-				if( list1 instanceof ObservableList )
-				{
-					FXCollections.sort( ( ObservableList<E> )list1, comparator );
-				}
-				else
-				{
-					Collections.sort( list1, comparator );
-				}
-			}
-		};
-		list2.addListener( invalidationListener );
 		bindContentUnordered( list1, list2 );
 
 		@SuppressWarnings( "unchecked" )
 		final ListChangeListener<E> contentSyncer = ( ListChangeListener<E> )contentListeners.getUnchecked( list1 );
-		final ListChangeListener<E> sortingListener = new ListChangeListener<E>()
-		{
-			@Override
-			public void onChanged( ListChangeListener.Change<? extends E> change )
-			{
-				contentSyncer.onChanged( change );
-				invalidationListener.invalidated( list2 );
-			}
-		};
+		final SortedContentBinding<E> sortingListener = new SortedContentBinding<>( list1, comparator );
 		contentListeners.put( list1, sortingListener );
 		list2.removeListener( contentSyncer );
-		list2.addListener( sortingListener );
+		list2.addListener( ( ListChangeListener<E> )sortingListener );
 		for( Observable observable : observables )
 		{
-			observable.addListener( invalidationListener );
+			observable.addListener( ( InvalidationListener )sortingListener );
 		}
-		invalidationListener.invalidated( list2 );
+		sortingListener.sort();
 	}
 
 	@SuppressWarnings( "unchecked" )
@@ -429,40 +779,98 @@ public class ObservableLists
 		return properties;
 	}
 
-	@SuppressWarnings( "serial" )
-	private static class ListeningList<F, T> extends ArrayList<T>
+	private static class FxList<E> extends SnapshotList<E> implements FxDispatcher.Sink
 	{
-		private final ObservableList<? extends F> originalList;
-		private final ObservableList<T> list;
-		private final ObservableList<T> readOnlyList;
-		private final Set<Object> hardrefs = new HashSet<>();
+		private final SnapshotList.Shadow<E> shadow;
+		private final FxDispatcher dispatcher;
+		private final AtomicInteger pendingCount = new AtomicInteger();
 
-		private ListeningList( ObservableList<? extends F> originalList )
+		private final ListChangeListener<E> listener = new ListChangeListener<E>()
 		{
-			this.originalList = originalList;
-			list = FXCollections.observableList( this );
-			readOnlyList = FXCollections.unmodifiableObservableList( list );
+			@Override
+			public void onChanged( ListChangeListener.Change<? extends E> change )
+			{
+				shadow.apply( change );
+				if( !dispatcher.isRateLimited() && dispatcher.getScheduler().isSchedulerThread() )
+				{
+					flush();
+				}
+				else
+				{
+					pendingCount.incrementAndGet();
+					dispatcher.dispatch( FxList.this );
+				}
+			}
+		};
+
+		private FxList( ObservableList<E> original, FxDispatcher dispatcher )
+		{
+			super( original );
+			this.shadow = new SnapshotList.Shadow<>( original );
+			this.dispatcher = dispatcher;
+			original.addListener( new WeakListChangeListener<>( listener ) );
 		}
 
-		public ListeningList<F, T> addListener( InvalidationListener listener )
+		@Override
+		public void flush()
 		{
-			originalList.addListener( new WeakInvalidationListener( listener ) );
-			hardrefs.add( listener );
+			// Changes made after this point are in the snapshot, or dispatch another flush.
+			pendingCount.set( 0 );
+			synchronize( shadow.snapshot() );
+		}
 
-			return this;
+		@Override
+		int getPendingUpdateCount()
+		{
+			return pendingCount.get();
 		}
+	}
+
+	private static class OptimizedList<E> extends SnapshotList<E>
+	{
+		private final ObservableList<E> originalList;
 
-		public ListeningList<F, T> addListener( ListChangeListener<F> listener )
+		private final AtomicInteger pendingCount = new AtomicInteger();
+
+		private final InvalidationListener listener = new InvalidationListener()
 		{
-			originalList.addListener( new WeakListChangeListener<>( listener ) );
-			hardrefs.add( listener );
+			private int syncNumber = 0;
 
-			return this;
+			@Override
+			public void invalidated( Observable _ )
+			{
+				final int nextSync = ++syncNumber;
+				pendingCount.incrementAndGet();
+				Platform.runLater( new Runnable()
+				{
+					@Override
+					public void run()
+					{
+						pendingCount.decrementAndGet();
+						if( syncNumber == nextSync )
+						{
+							synchronize( originalList );
+						}
+					}
+				} );
+			}
+		};
+
+		private OptimizedList( ObservableList<E> originalList )
+		{
+			super( originalList );
+			this.originalList = originalList;
+			originalList.addListener( new WeakInvalidationListener( listener ) );
+		}
+
+		@Override
+		int getPendingUpdateCount()
+		{
+			return pendingCount.get();
 		}
 	}
 
-	@SuppressWarnings( "serial" )
-	private static class ExpressionList<E> extends ArrayList<E>
+	private static class ExpressionList<E> extends SnapshotList<E> implements FxDispatcher.Sink
 	{
 		private final ListChangeListener<Observable> observablesListListener = new ListChangeListener<Observable>()
 		{
@@ -490,52 +898,78 @@ public class ObservableLists
 			@Override
 			public void invalidated( Observable arg0 )
 			{
-				if( Platform.isFxApplicationThread() )
+				if( executor != null )
+				{
+					evaluateInBackground();
+				}
+				else if( dispatcher.getScheduler().isSchedulerThread() )
+				{
+					synchronize( evaluate() );
+				}
+				else
+				{
+					pendingCount.incrementAndGet();
+					dispatcher.dispatch( ExpressionList.this );
+				}
+			}
+		};
+
+		private final WeakInvalidationListener weakObservableListener = new WeakInvalidationListener( observableListener );
+
+		private final Runnable evaluation = new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				List<E> latest;
+				do
 				{
+					synchronized( ExpressionList.this )
+					{
+						stale = false;
+					}
 					try
 					{
-						list.setAll( Lists.newArrayList( expression.call() ) );
+						latest = evaluate();
 					}
-					catch( Exception e )
+					catch( RuntimeException e )
 					{
-						throw new RuntimeException( e );
+						// Executors may drop the exception, so report it, and keep the previous result unless the
+						// expression has been invalidated in the meantime.
+						reportFailure( e );
+						latest = null;
 					}
 				}
-				else
-					Platform.runLater( new Runnable()
-					{
-						@Override
-						public void run()
-						{
-							try
-							{
-								list.setAll( Lists.newArrayList( expression.call() ) );
-							}
-							catch( Exception e )
-							{
-								throw new RuntimeException( e );
-							}
-						}
-					} );
+				while( !publish( latest ) );
+				if( latest != null )
+				{
+					dispatcher.dispatch( ExpressionList.this );
+				}
 			}
 		};
 
-		private final WeakInvalidationListener weakObservableListener = new WeakInvalidationListener( observableListener );
-
-		private final ObservableList<E> list;
-		private final ObservableList<E> readOnlyList;
 		private final Callable<? extends Iterable<E>> expression;
+		private final Executor executor;
+		private final FxDispatcher dispatcher;
 		@SuppressWarnings( "unused" )
 		private ObservableList<? extends Observable> observables; // Needs to be a field to avoid GC.
 
+		// The number of invalidations which haven't been published yet.
+		private final AtomicInteger pendingCount = new AtomicInteger();
+
+		// Guarded by this, only used when evaluating using an Executor.
+		private boolean evaluating = false;
+		private boolean stale = false;
+		private List<E> result;
+
 		private ExpressionList( Callable<? extends Iterable<E>> expression,
-				ObservableList<? extends Observable> observables )
+				ObservableList<? extends Observable> observables, Executor executor, FxDispatcher dispatcher )
 		{
+			super( Collections.<E> emptyList() );
 			this.expression = expression;
 			this.observables = observables;
-
-			list = FXCollections.observableList( this );
-			readOnlyList = FXCollections.unmodifiableObservableList( list );
+			this.executor = executor;
+			this.dispatcher = dispatcher;
 
 			observables.addListener( weakObservablesListListener );
 			observables.addListener( weakObservableListener );
@@ -546,8 +980,91 @@ public class ObservableLists
 
 			observableListener.invalidated( observables );
 		}
-	}
 
+		private List<E> evaluate()
+		{
+			try
+			{
+				return Lists.newArrayList( expression.call() );
+			}
+			catch( Exception e )
+			{
+				throw new RuntimeException( e );
+			}
+		}
+
+		private void evaluateInBackground()
+		{
+			synchronized( this )
+			{
+				pendingCount.incrementAndGet();
+				if( evaluating )
+				{
+					stale = true;
+					return;
+				}
+				evaluating = true;
+			}
+			executor.execute( evaluation );
+		}
+
+		/**
+		 * Stores the result of an evaluation to be published, unless the
+		 * expression has been invalidated during the evaluation. A null result,
+		 * from a failed evaluation, leaves the previous result in place.
+		 */
+		private synchronized boolean publish( List<E> latest )
+		{
+			if( stale )
+			{
+				return false;
+			}
+			evaluating = false;
+			if( latest != null )
+			{
+				result = latest;
+			}
+			else
+			{
+				// Nothing will be published for the invalidations so far.
+				pendingCount.set( 0 );
+			}
+			return true;
+		}
+
+		@Override
+		public void flush()
+		{
+			List<E> latest;
+			if( executor == null )
+			{
+				pendingCount.set( 0 );
+				latest = evaluate();
+			}
+			else
+			{
+				synchronized( this )
+				{
+					latest = result;
+					result = null;
+					if( !evaluating )
+					{
+						pendingCount.set( 0 );
+					}
+				}
+			}
+			if( latest != null )
+			{
+				synchronize( latest );
+			}
+		}
+
+		@Override
+		int getPendingUpdateCount()
+		{
+			return pendingCount.get();
+		}
+	}
 
 	public static <E> Set<E> getActuallyRemoved( ListChangeListener.Change<E> c )
 	{
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2013 SmartBear Software
+ *
+ * Licensed under the EUPL, Version 1.1 or - as soon they will be approved by the European Commission - subsequent
+ * versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is
+ * distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the Licence for the specific language governing permissions and limitations
+ * under the Licence.
+ */
+package org.guavafx;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javafx.beans.binding.ObjectBinding;
+import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import javafx.collections.WeakListChangeListener;
+
+/**
+ * An ObservableValue containing the combination of the elements of a source list according to a Monoid, as created by
+ * ObservableLists.reduce(), min() and max().
+ *
+ * The elements are kept in an IndexedTree which combines them, so each added, removed or updated element costs
+ * O(log n), and the result is available in O(1). The value is invalidated once per source change.
+ */
+final class ReducedValue<T> extends ObjectBinding<T>
+{
+	private final ObservableList<? extends T> source;
+	private final IndexedTree<T> elements;
+
+	private final ListChangeListener<T> sourceListener = new ListChangeListener<T>()
+	{
+		@Override
+		public void onChanged( ListChangeListener.Change<? extends T> change )
+		{
+			while( change.next() )
+			{
+				if( change.wasPermutated() )
+				{
+					sourcePermutated( change );
+				}
+				else if( change.wasUpdated() )
+				{
+					for( int i = change.getFrom(); i < change.getTo(); i++ )
+					{
+						elements.setValue( elements.node( i ), change.getList().get( i ) );
+					}
+				}
+				else
+				{
+					if( change.wasRemoved() )
+					{
+						elements.removeRange( change.getFrom(), change.getFrom() + change.getRemovedSize() );
+					}
+					if( change.wasAdded() )
+					{
+						elements.insertAll( change.getFrom(), change.getAddedSubList(),
+								ones( change.getAddedSize() ) );
+					}
+				}
+			}
+			invalidate();
+		}
+	};
+	private final ListChangeListener<T> weakSourceListener = new WeakListChangeListener<>( sourceListener );
+
+	ReducedValue( ObservableList<? extends T> source, Monoid<T> monoid )
+	{
+		this.source = source;
+		this.elements = new IndexedTree<>( monoid );
+		elements.insertAll( 0, source, ones( source.size() ) );
+		source.addListener( weakSourceListener );
+	}
+
+	@Override
+	protected T computeValue()
+	{
+		return elements.aggregate();
+	}
+
+	@Override
+	public ObservableList<?> getDependencies()
+	{
+		return FXCollections.singletonObservableList( source );
+	}
+
+	@Override
+	public void dispose()
+	{
+		source.removeListener( weakSourceListener );
+	}
+
+	private void sourcePermutated( ListChangeListener.Change<? extends T> change )
+	{
+		int from = change.getFrom();
+		int to = change.getTo();
+		List<T> values = elements.removeRange( from, to );
+		List<T> permutated = new ArrayList<>( values );
+		for( int i = from; i < to; i++ )
+		{
+			permutated.set( change.getPermutation( i ) - from, values.get( i - from ) );
+		}
+		elements.insertAll( from, permutated, ones( permutated.size() ) );
+	}
+
+	private static int[] ones( int size )
+	{
+		int[] weights = new int[size];
+		Arrays.fill( weights, 1 );
+		return weights;
+	}
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2013 SmartBear Software
+ *
+ * Licensed under the EUPL, Version 1.1 or - as soon they will be approved by the European Commission - subsequent
+ * versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is
+ * distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the Licence for the specific language governing permissions and limitations
+ * under the Licence.
+ */
+package org.guavafx;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javafx.application.Platform;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Runs tasks on a single thread, possibly after a delay, and provides the clock used to compute such delays. The
+ * default implementation runs tasks on the JavaFX application thread; other implementations can be used to run the
+ * time based operations of ObservableLists deterministically, e.g. in tests.
+ */
+public abstract class Scheduler
+{
+	private static final Scheduler FX_THREAD = new Scheduler()
+	{
+		@Override
+		public long nanoTime()
+		{
+			return System.nanoTime();
+		}
+
+		@Override
+		public void schedule( final Runnable task, long delay, TimeUnit unit )
+		{
+			if( delay <= 0 )
+			{
+				Platform.runLater( task );
+			}
+			else
+			{
+				Timer.INSTANCE.schedule( new Runnable()
+				{
+					@Override
+					public void run()
+					{
+						Platform.runLater( task );
+					}
+				}, delay, unit );
+			}
+		}
+
+		@Override
+		public boolean isSchedulerThread()
+		{
+			return Platform.isFxApplicationThread();
+		}
+	};
+
+	/**
+	 * Returns a Scheduler which runs its tasks on the JavaFX application thread.
+	 *
+	 * @return
+	 */
+	public static Scheduler fxThread()
+	{
+		return FX_THREAD;
+	}
+
+	/**
+	 * Returns the current time in nanoseconds, relative to some arbitrary origin.
+	 *
+	 * @return
+	 */
+	public abstract long nanoTime();
+
+	/**
+	 * Runs the given task on the thread of this Scheduler, after the given delay. A delay of zero or less runs the task
+	 * as soon as possible.
+	 *
+	 * @param task
+	 * @param delay
+	 * @param unit
+	 */
+	public abstract void schedule( Runnable task, long delay, TimeUnit unit );
+
+	/**
+	 * Returns true if the current thread is the thread of this Scheduler.
+	 *
+	 * @return
+	 */
+	public abstract boolean isSchedulerThread();
+
+	/**
+	 * Lazily started daemon thread used to wait out delays before handing tasks over to the FX thread.
+	 */
+	private static class Timer
+	{
+		private static final ScheduledExecutorService INSTANCE = Executors
+				.newSingleThreadScheduledExecutor( new ThreadFactoryBuilder().setDaemon( true )
+						.setNameFormat( "guavafx-scheduler" ).build() );
+	}
+}
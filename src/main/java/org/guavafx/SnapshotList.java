@@ -0,0 +1,120 @@
+/*
+ * Copyright 2013 SmartBear Software
+ *
+ * Licensed under the EUPL, Version 1.1 or - as soon they will be approved by the European Commission - subsequent
+ * versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is
+ * distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the Licence for the specific language governing permissions and limitations
+ * under the Licence.
+ */
+package org.guavafx;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javafx.collections.ListChangeListener;
+
+import com.google.common.base.Equivalence;
+
+/**
+ * A derived list which keeps its own copy of the elements, and is brought up to date with a snapshot of some other
+ * list at a time of its choosing. The difference between the current elements and the snapshot is computed using
+ * ListDiff, and reported as a single change. Elements are compared by identity, so that an element which is replaced by
+ * an equal but distinct one is reported as replaced, rather than left stale.
+ */
+abstract class SnapshotList<E> extends DerivedObservableList<E>
+{
+	private final List<E> elements;
+
+	SnapshotList( List<? extends E> initialElements )
+	{
+		elements = new ArrayList<>( initialElements );
+	}
+
+	@Override
+	public E get( int index )
+	{
+		return elements.get( index );
+	}
+
+	@Override
+	public int size()
+	{
+		return elements.size();
+	}
+
+	/**
+	 * Makes the contents of this list equal to the given snapshot, reporting the minimal change.
+	 */
+	protected void synchronize( List<? extends E> snapshot )
+	{
+		beginChange();
+		ListDiff<E> diff = ListDiff.compute( elements, snapshot, Equivalence.identity() );
+		for( ListDiff.Edit<E> edit : diff.getEdits() )
+		{
+			int index = edit.getIndex();
+			elements.subList( index, index + edit.getRemoved().size() ).clear();
+			elements.addAll( index, edit.getAdded() );
+			nextReplace( index, index + edit.getAdded().size(), edit.getRemoved() );
+		}
+		endChange();
+	}
+
+	/**
+	 * A copy of a list which is kept up to date by the thread modifying that list, by applying each of its changes, so
+	 * that a consistent snapshot of it can be taken on another thread. Reading the list itself from another thread
+	 * while it is being modified could see it half-way through a modification.
+	 */
+	static final class Shadow<E>
+	{
+		// Guarded by this.
+		private final List<E> elements;
+
+		Shadow( List<? extends E> initialElements )
+		{
+			elements = new ArrayList<>( initialElements );
+		}
+
+		/**
+		 * Applies a change of the shadowed list. Must be called on the thread which made the change.
+		 */
+		synchronized void apply( ListChangeListener.Change<? extends E> change )
+		{
+			while( change.next() )
+			{
+				int from = change.getFrom();
+				if( change.wasPermutated() )
+				{
+					List<E> previous = new ArrayList<>( elements.subList( from, change.getTo() ) );
+					for( int i = from; i < change.getTo(); i++ )
+					{
+						elements.set( change.getPermutation( i ), previous.get( i - from ) );
+					}
+				}
+				else if( change.wasUpdated() )
+				{
+					for( int i = from; i < change.getTo(); i++ )
+					{
+						elements.set( i, change.getList().get( i ) );
+					}
+				}
+				else
+				{
+					elements.subList( from, from + change.getRemovedSize() ).clear();
+					elements.addAll( from, change.getAddedSubList() );
+				}
+			}
+		}
+
+		synchronized List<E> snapshot()
+		{
+			return new ArrayList<>( elements );
+		}
+	}
+}
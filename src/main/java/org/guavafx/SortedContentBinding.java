@@ -0,0 +1,293 @@
+/*
+ * Copyright 2013 SmartBear Software
+ *
+ * Licensed under the EUPL, Version 1.1 or - as soon they will be approved by the European Commission - subsequent
+ * versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is
+ * distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the Licence for the specific language governing permissions and limitations
+ * under the Licence.
+ */
+package org.guavafx;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javafx.beans.InvalidationListener;
+import javafx.beans.Observable;
+import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+
+import com.google.common.base.Objects;
+
+/**
+ * Keeps a target list sorted while its content is bound to a source list, as done by ObservableLists.bindSorted().
+ *
+ * Added elements are inserted at the position found by binary search, and removed elements are located the same way,
+ * so a change of k elements costs O(k log n) comparisons rather than a full sort. A source change of more than about
+ * log n elements is instead applied in one pass, merging the sorted added elements into the remaining ones, and written
+ * to the target list with a single setAll(), since inserting and removing that many elements one by one would cost
+ * O(n) each, and report a change for each of them. When the sort keys may have changed
+ * (an update of the source list, or an invalidation of one of the extra observables) only the elements which are out
+ * of order are moved, falling back to a full sort if there are too many of them.
+ */
+final class SortedContentBinding<E> implements ListChangeListener<E>, InvalidationListener
+{
+	private final List<E> target;
+	private final Comparator<? super E> comparator;
+
+	SortedContentBinding( List<E> target, Comparator<? super E> comparator )
+	{
+		this.target = target;
+		this.comparator = comparator;
+	}
+
+	@Override
+	public void onChanged( ListChangeListener.Change<? extends E> change )
+	{
+		boolean updated = false;
+		List<E> removed = new ArrayList<>();
+		List<E> added = new ArrayList<>();
+		while( change.next() )
+		{
+			if( change.wasPermutated() )
+			{
+				continue;
+			}
+			if( change.wasUpdated() )
+			{
+				updated = true;
+				continue;
+			}
+			removed.addAll( change.getRemoved() );
+			added.addAll( change.getAddedSubList() );
+		}
+
+		if( removed.size() + added.size() > 32 - Integer.numberOfLeadingZeros( target.size() ) )
+		{
+			merge( removed, added );
+		}
+		else
+		{
+			for( E element : removed )
+			{
+				remove( element );
+			}
+			for( E element : added )
+			{
+				target.add( upperBound( element ), element );
+			}
+		}
+		if( updated )
+		{
+			repair();
+		}
+	}
+
+	@Override
+	public void invalidated( Observable observable )
+	{
+		repair();
+	}
+
+	/**
+	 * Sorts the whole target list.
+	 */
+	void sort()
+	{
+		if( target instanceof ObservableList )
+		{
+			FXCollections.sort( ( ObservableList<E> )target, comparator );
+		}
+		else
+		{
+			Collections.sort( target, comparator );
+		}
+	}
+
+	/**
+	 * Removes one occurrence of each of the removed elements, and merges the added elements into the remaining ones,
+	 * after those equal to them, replacing the content of the target list at once.
+	 */
+	private void merge( List<E> removed, List<E> added )
+	{
+		Map<E, Integer> counts = new HashMap<>();
+		for( E element : removed )
+		{
+			Integer count = counts.get( element );
+			counts.put( element, count == null ? 1 : count + 1 );
+		}
+		List<E> remaining = new ArrayList<>( target.size() );
+		for( E element : target )
+		{
+			Integer count = counts.get( element );
+			if( count == null )
+			{
+				remaining.add( element );
+			}
+			else if( count == 1 )
+			{
+				counts.remove( element );
+			}
+			else
+			{
+				counts.put( element, count - 1 );
+			}
+		}
+
+		List<E> sortedAdded = new ArrayList<>( added );
+		Collections.sort( sortedAdded, comparator );
+		List<E> merged = new ArrayList<>( remaining.size() + sortedAdded.size() );
+		int i = 0;
+		int j = 0;
+		while( i < remaining.size() || j < sortedAdded.size() )
+		{
+			if( j == sortedAdded.size()
+					|| ( i < remaining.size() && comparator.compare( remaining.get( i ), sortedAdded.get( j ) ) <= 0 ) )
+			{
+				merged.add( remaining.get( i++ ) );
+			}
+			else
+			{
+				merged.add( sortedAdded.get( j++ ) );
+			}
+		}
+
+		if( target instanceof ObservableList )
+		{
+			( ( ObservableList<E> )target ).setAll( merged );
+		}
+		else
+		{
+			target.clear();
+			target.addAll( merged );
+		}
+	}
+
+	/**
+	 * Restores the order of the target list after sort keys may have changed. The elements which are out of order are
+	 * found by scanning the list in both directions, so that elements which have moved either way are found, and are
+	 * then taken out and re-inserted by binary search. If that is more than about log n elements, the target list is
+	 * sorted instead.
+	 */
+	private void repair()
+	{
+		int maxDisplaced = 32 - Integer.numberOfLeadingZeros( target.size() );
+		List<Integer> displaced = findDisplaced( true, maxDisplaced );
+		if( displaced == null || !displaced.isEmpty() )
+		{
+			List<Integer> backwards = findDisplaced( false, displaced == null ? maxDisplaced : displaced.size() - 1 );
+			if( backwards != null )
+			{
+				displaced = backwards;
+			}
+		}
+		if( displaced == null )
+		{
+			sort();
+			return;
+		}
+
+		Collections.sort( displaced );
+		List<E> elements = new ArrayList<>( displaced.size() );
+		for( int i = displaced.size() - 1; i >= 0; i-- )
+		{
+			elements.add( target.remove( displaced.get( i ).intValue() ) );
+		}
+		for( E element : elements )
+		{
+			target.add( upperBound( element ), element );
+		}
+	}
+
+	/**
+	 * Returns the indexes of the elements which are out of order with respect to the elements before them (or after
+	 * them, when scanning backwards), or null if there are more than max such elements.
+	 */
+	private List<Integer> findDisplaced( boolean forwards, int max )
+	{
+		int size = target.size();
+		List<Integer> displaced = new ArrayList<>();
+		E last = null;
+		for( int n = 0; n < size; n++ )
+		{
+			int i = forwards ? n : size - 1 - n;
+			E element = target.get( i );
+			if( displaced.size() < n && comparator.compare( last, element ) * ( forwards ? 1 : -1 ) > 0 )
+			{
+				if( displaced.size() == max )
+				{
+					return null;
+				}
+				displaced.add( i );
+			}
+			else
+			{
+				last = element;
+			}
+		}
+		return displaced;
+	}
+
+	private void remove( E element )
+	{
+		for( int i = lowerBound( element ); i < target.size() && comparator.compare( target.get( i ), element ) == 0; i++ )
+		{
+			if( Objects.equal( target.get( i ), element ) )
+			{
+				target.remove( i );
+				return;
+			}
+		}
+		// The element is not where its sort key says it should be, so its key must have changed.
+		target.remove( element );
+	}
+
+	private int lowerBound( E element )
+	{
+		int low = 0;
+		int high = target.size();
+		while( low < high )
+		{
+			int middle = ( low + high ) >>> 1;
+			if( comparator.compare( target.get( middle ), element ) < 0 )
+			{
+				low = middle + 1;
+			}
+			else
+			{
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	private int upperBound( E element )
+	{
+		int low = 0;
+		int high = target.size();
+		while( low < high )
+		{
+			int middle = ( low + high ) >>> 1;
+			if( comparator.compare( target.get( middle ), element ) <= 0 )
+			{
+				low = middle + 1;
+			}
+			else
+			{
+				high = middle;
+			}
+		}
+		return low;
+	}
+}
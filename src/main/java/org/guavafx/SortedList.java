@@ -0,0 +1,480 @@
+/*
+ * Copyright 2013 SmartBear Software
+ *
+ * Licensed under the EUPL, Version 1.1 or - as soon they will be approved by the European Commission - subsequent
+ * versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is
+ * distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the Licence for the specific language governing permissions and limitations
+ * under the Licence.
+ */
+package org.guavafx;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import javafx.beans.InvalidationListener;
+import javafx.beans.Observable;
+import javafx.beans.WeakInvalidationListener;
+import javafx.beans.value.ObservableValue;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import javafx.collections.WeakListChangeListener;
+
+import com.google.common.collect.Sets;
+
+/**
+ * An ObservableList containing the elements of a source list, sorted by a comparator.
+ *
+ * Each element is stored in two IndexedTrees: one in source order, which maps source indexes to elements, and one in
+ * sorted order, where elements are inserted at the position found by binary search. Adding, removing and looking up
+ * elements is thereby O(log n), and every source change is reported as the corresponding positional changes. A source
+ * change which touches many elements is instead applied to the trees as a whole, and reported in a single pass over the
+ * sorted elements, as reporting each of its elements at its own position would cost O(k) per element.
+ *
+ * Equal elements are kept in the order of their positions in the source list: when the comparator finds two elements
+ * equal, their indexes in the source tree are compared, both when inserting and when re-sorting. When the source list is
+ * permutated, the runs of equal elements containing moved elements are reordered accordingly, which is reported as a
+ * permutation. When the comparator changes, the elements are re-sorted and the new order is reported as a single
+ * permutation.
+ *
+ * The list is lazy, see LazyDerivedList.
+ */
+final class SortedList<E> extends LazyDerivedList<E>
+{
+	private final IndexedTree<Entry> sorted = new IndexedTree<>();
+	private final IndexedTree<Entry> sourceOrder = new IndexedTree<>();
+	private final ObservableValue<? extends Comparator<? super E>> comparatorValue;
+	private Comparator<? super E> comparator;
+
+	private final Comparator<Entry> entryComparator = new Comparator<Entry>()
+	{
+		@Override
+		public int compare( Entry left, Entry right )
+		{
+			int result = comparator.compare( left.value, right.value );
+			return result != 0 ? result : Integer.compare( sourceOrder.indexOf( left.sourceNode ),
+					sourceOrder.indexOf( right.sourceNode ) );
+		}
+	};
+
+	private final ObservableList<E> source;
+
+	private final ListChangeListener<E> sourceListener = new ListChangeListener<E>()
+	{
+		@Override
+		public void onChanged( ListChangeListener.Change<? extends E> change )
+		{
+			if( !isObserved() )
+			{
+				return;
+			}
+			recordSourceChange( change );
+			beginChange();
+			while( change.next() )
+			{
+				if( change.wasPermutated() )
+				{
+					sourcePermutated( change );
+				}
+				else if( change.wasUpdated() )
+				{
+					for( int i = change.getFrom(); i < change.getTo(); i++ )
+					{
+						sourceUpdated( i, change.getList().get( i ) );
+					}
+				}
+				else
+				{
+					sourceReplaced( change.getFrom(), change.getRemovedSize(), change.getAddedSubList() );
+				}
+			}
+			endChange();
+		}
+	};
+	private final ListChangeListener<E> weakSourceListener = new WeakListChangeListener<>( sourceListener );
+
+	private final InvalidationListener comparatorListener = new InvalidationListener()
+	{
+		@Override
+		public void invalidated( Observable observable )
+		{
+			comparator = checkNotNull( comparatorValue.getValue(), "comparator" );
+			if( isObserved() )
+			{
+				resort();
+			}
+		}
+	};
+
+	SortedList( ObservableList<E> source, Comparator<? super E> comparator )
+	{
+		this( source, comparator, null );
+	}
+
+	SortedList( ObservableList<E> source, ObservableValue<? extends Comparator<? super E>> comparatorValue )
+	{
+		this( source, comparatorValue.getValue(), comparatorValue );
+		comparatorValue.addListener( new WeakInvalidationListener( comparatorListener ) );
+	}
+
+	private SortedList( ObservableList<E> source, Comparator<? super E> comparator,
+			ObservableValue<? extends Comparator<? super E>> comparatorValue )
+	{
+		this.source = source;
+		this.comparator = checkNotNull( comparator, "comparator" );
+		this.comparatorValue = comparatorValue;
+	}
+
+	@Override
+	public E get( int index )
+	{
+		validate();
+		return sorted.get( index ).value;
+	}
+
+	@Override
+	public int size()
+	{
+		validate();
+		return sorted.size();
+	}
+
+	@Override
+	protected void connect()
+	{
+		source.addListener( weakSourceListener );
+		sourceAdded( 0, source );
+	}
+
+	@Override
+	protected void disconnect()
+	{
+		source.removeListener( weakSourceListener );
+		sorted.clear();
+		sourceOrder.clear();
+	}
+
+	private void sourceReplaced( int from, int removedSize, List<? extends E> added )
+	{
+		long touched = removedSize + added.size();
+		if( touched * touched <= sorted.size() )
+		{
+			if( removedSize > 0 )
+			{
+				sourceRemoved( from, from + removedSize );
+			}
+			if( !added.isEmpty() )
+			{
+				sourceAdded( from, added );
+			}
+			return;
+		}
+
+		List<Entry> before = sorted.values( 0, sorted.size() );
+		Set<Entry> removed = Sets.newIdentityHashSet();
+		for( Entry entry : sourceOrder.removeRange( from, from + removedSize ) )
+		{
+			sorted.remove( entry.sortedNode );
+			removed.add( entry );
+		}
+		Set<Entry> inserted = Sets.newIdentityHashSet();
+		inserted.addAll( insertSorted( insertInSourceOrder( from, added ) ) );
+		List<Entry> after = sorted.values( 0, sorted.size() );
+
+		// Both lists contain the remaining elements in the same order, so walking them side by side yields the removed
+		// and added runs in ascending order, each at its position in the list as it is at that point.
+		int position = 0;
+		int i = 0;
+		int j = 0;
+		while( i < before.size() || j < after.size() )
+		{
+			int end = i;
+			while( end < before.size() && removed.contains( before.get( end ) ) )
+			{
+				end++;
+			}
+			if( end > i )
+			{
+				nextRemove( position, valuesOf( before.subList( i, end ) ) );
+				i = end;
+				continue;
+			}
+			end = j;
+			while( end < after.size() && inserted.contains( after.get( end ) ) )
+			{
+				end++;
+			}
+			if( end > j )
+			{
+				nextAdd( position, position + end - j );
+				position += end - j;
+				j = end;
+				continue;
+			}
+			i++;
+			j++;
+			position++;
+		}
+	}
+
+	private void sourceAdded( int from, List<? extends E> added )
+	{
+		List<Entry> entries = insertInSourceOrder( from, added );
+		if( sorted.size() == 0 )
+		{
+			insertSorted( entries );
+			nextAdd( 0, entries.size() );
+			return;
+		}
+
+		for( Entry entry : entries )
+		{
+			int index = sorted.upperBound( entry, entryComparator );
+			entry.sortedNode = sorted.insert( index, entry, 1 );
+			nextAdd( index, index + 1 );
+		}
+	}
+
+	private void sourceRemoved( int from, int to )
+	{
+		for( Entry entry : sourceOrder.removeRange( from, to ) )
+		{
+			int index = sorted.indexOf( entry.sortedNode );
+			sorted.remove( entry.sortedNode );
+			nextRemove( index, entry.value );
+		}
+	}
+
+	private void sourceUpdated( int sourceIndex, E element )
+	{
+		Entry entry = sourceOrder.get( sourceIndex );
+		int index = sorted.indexOf( entry.sortedNode );
+		E old = entry.value;
+		entry.value = element;
+		boolean afterPrevious = index == 0 || entryComparator.compare( sorted.get( index - 1 ), entry ) <= 0;
+		boolean beforeNext = index == sorted.size() - 1 || entryComparator.compare( entry, sorted.get( index + 1 ) ) <= 0;
+		if( afterPrevious && beforeNext )
+		{
+			if( old == element )
+			{
+				nextUpdate( index );
+			}
+			else
+			{
+				nextSet( index, old );
+			}
+			return;
+		}
+
+		sorted.remove( entry.sortedNode );
+		nextRemove( index, old );
+		int newIndex = sorted.upperBound( entry, entryComparator );
+		entry.sortedNode = sorted.insert( newIndex, entry, 1 );
+		nextAdd( newIndex, newIndex + 1 );
+	}
+
+	private void sourcePermutated( ListChangeListener.Change<? extends E> change )
+	{
+		int from = change.getFrom();
+		int to = change.getTo();
+		List<Entry> values = sourceOrder.removeRange( from, to );
+		List<Entry> permutated = new ArrayList<>( values );
+		for( int i = from; i < to; i++ )
+		{
+			permutated.set( change.getPermutation( i ) - from, values.get( i - from ) );
+		}
+		setSourceNodes( sourceOrder.insertAll( from, permutated, ones( permutated.size() ) ) );
+
+		// Only elements which were both moved can have swapped their source order, so only the runs of equal elements
+		// which contain a moved element need to be reordered.
+		SortedMap<Integer, Integer> runs = new TreeMap<>();
+		for( Entry entry : values )
+		{
+			int index = sorted.indexOf( entry.sortedNode );
+			SortedMap<Integer, Integer> preceding = runs.headMap( index + 1 );
+			if( !preceding.isEmpty() && runs.get( preceding.lastKey() ) > index )
+			{
+				continue;
+			}
+			int start = index;
+			while( start > 0 && comparator.compare( sorted.get( start - 1 ).value, entry.value ) == 0 )
+			{
+				start--;
+			}
+			int end = index + 1;
+			while( end < sorted.size() && comparator.compare( sorted.get( end ).value, entry.value ) == 0 )
+			{
+				end++;
+			}
+			if( end - start > 1 )
+			{
+				runs.put( start, end );
+			}
+		}
+		if( runs.isEmpty() )
+		{
+			return;
+		}
+
+		int permutationFrom = runs.firstKey();
+		int[] permutation = new int[runs.get( runs.lastKey() ) - permutationFrom];
+		for( int i = 0; i < permutation.length; i++ )
+		{
+			permutation[i] = permutationFrom + i;
+		}
+		boolean changed = false;
+		for( Map.Entry<Integer, Integer> run : runs.entrySet() )
+		{
+			int start = run.getKey();
+			List<Entry> previous = sorted.values( start, run.getValue() );
+			List<Entry> reordered = new ArrayList<>( previous );
+			Collections.sort( reordered, entryComparator );
+			for( int i = 0; i < reordered.size(); i++ )
+			{
+				Entry entry = reordered.get( i );
+				if( entry != previous.get( i ) )
+				{
+					changed = true;
+					permutation[sorted.indexOf( entry.sortedNode ) - permutationFrom] = start + i;
+				}
+			}
+			for( int i = 0; i < reordered.size(); i++ )
+			{
+				IndexedTree.Node<Entry> node = sorted.node( start + i );
+				sorted.setValue( node, reordered.get( i ) );
+				reordered.get( i ).sortedNode = node;
+			}
+		}
+		if( changed )
+		{
+			nextPermutation( permutationFrom, permutationFrom + permutation.length, permutation );
+		}
+	}
+
+	/**
+	 * Sorts the elements by the current comparator, keeping equal elements in source order, and reports the new order
+	 * as a permutation.
+	 */
+	private void resort()
+	{
+		int size = sorted.size();
+		List<Entry> entries = sourceOrder.values( 0, size );
+		int[] oldIndexes = new int[size];
+		for( int i = 0; i < size; i++ )
+		{
+			oldIndexes[i] = sorted.indexOf( entries.get( i ).sortedNode );
+		}
+		List<Entry> resorted = new ArrayList<>( entries );
+		Collections.sort( resorted, entryComparator );
+		sorted.clear();
+		setSortedNodes( sorted.insertAll( 0, resorted, ones( size ) ) );
+
+		int[] permutation = new int[size];
+		boolean changed = false;
+		for( int i = 0; i < size; i++ )
+		{
+			int newIndex = sorted.indexOf( entries.get( i ).sortedNode );
+			permutation[oldIndexes[i]] = newIndex;
+			changed |= newIndex != oldIndexes[i];
+		}
+		if( changed )
+		{
+			beginChange();
+			nextPermutation( 0, size, permutation );
+			endChange();
+		}
+	}
+
+	private List<Entry> insertInSourceOrder( int from, List<? extends E> added )
+	{
+		List<Entry> entries = new ArrayList<>( added.size() );
+		for( E element : added )
+		{
+			entries.add( new Entry( element ) );
+		}
+		setSourceNodes( sourceOrder.insertAll( from, entries, ones( entries.size() ) ) );
+		return entries;
+	}
+
+	/**
+	 * Inserts the given entries into the sorted tree, without reporting any changes.
+	 */
+	private List<Entry> insertSorted( List<Entry> entries )
+	{
+		if( sorted.size() == 0 )
+		{
+			List<Entry> ordered = new ArrayList<>( entries );
+			Collections.sort( ordered, entryComparator );
+			setSortedNodes( sorted.insertAll( 0, ordered, ones( ordered.size() ) ) );
+			return entries;
+		}
+		for( Entry entry : entries )
+		{
+			entry.sortedNode = sorted.insert( sorted.upperBound( entry, entryComparator ), entry, 1 );
+		}
+		return entries;
+	}
+
+	private List<E> valuesOf( List<Entry> entries )
+	{
+		List<E> values = new ArrayList<>( entries.size() );
+		for( Entry entry : entries )
+		{
+			values.add( entry.value );
+		}
+		return values;
+	}
+
+	private void setSourceNodes( List<IndexedTree.Node<Entry>> nodes )
+	{
+		for( IndexedTree.Node<Entry> node : nodes )
+		{
+			node.getValue().sourceNode = node;
+		}
+	}
+
+	private void setSortedNodes( List<IndexedTree.Node<Entry>> nodes )
+	{
+		for( IndexedTree.Node<Entry> node : nodes )
+		{
+			node.getValue().sortedNode = node;
+		}
+	}
+
+	private static int[] ones( int size )
+	{
+		int[] weights = new int[size];
+		Arrays.fill( weights, 1 );
+		return weights;
+	}
+
+	/**
+	 * An element of the source list, along with its nodes in both trees.
+	 */
+	private final class Entry
+	{
+		private E value;
+		private IndexedTree.Node<Entry> sourceNode;
+		private IndexedTree.Node<Entry> sortedNode;
+
+		private Entry( E value )
+		{
+			this.value = value;
+		}
+	}
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2013 SmartBear Software
+ *
+ * Licensed under the EUPL, Version 1.1 or - as soon they will be approved by the European Commission - subsequent
+ * versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is
+ * distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the Licence for the specific language governing permissions and limitations
+ * under the Licence.
+ */
+package org.guavafx;
+
+import java.util.concurrent.TimeUnit;
+
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import javafx.collections.WeakListChangeListener;
+
+/**
+ * A copy of a source list which is brought up to date on the thread of a Scheduler, at a limited rate, as created by
+ * ObservableLists.throttle() and debounce().
+ *
+ * When throttling, the first change after a quiet period is published as soon as possible, and further changes are
+ * accumulated and published at most once per interval. When debouncing, changes are accumulated until the source list
+ * has been left alone for the given quiet period. Either way, all accumulated changes are published as one change,
+ * computed by diffing the copy against a snapshot of the source list. The snapshot is taken from a SnapshotList.Shadow,
+ * which is kept up to date by the thread modifying the source list.
+ */
+final class ThrottledList<E> extends SnapshotList<E>
+{
+	private final SnapshotList.Shadow<E> shadow;
+	private final Scheduler scheduler;
+	private final long interval;
+	private final boolean debounce;
+
+	// Guarded by this.
+	private boolean scheduled = false;
+	private long lastEmit;
+	private long lastChange;
+
+	private final ListChangeListener<E> listener = new ListChangeListener<E>()
+	{
+		@Override
+		public void onChanged( ListChangeListener.Change<? extends E> change )
+		{
+			shadow.apply( change );
+			sourceChanged();
+		}
+	};
+
+	private final Runnable emitTask = new Runnable()
+	{
+		@Override
+		public void run()
+		{
+			synchronized( ThrottledList.this )
+			{
+				long now = scheduler.nanoTime();
+				if( debounce && now - lastChange < interval )
+				{
+					scheduler.schedule( this, lastChange + interval - now, TimeUnit.NANOSECONDS );
+					return;
+				}
+				scheduled = false;
+				lastEmit = now;
+			}
+			synchronize( shadow.snapshot() );
+		}
+	};
+
+	ThrottledList( ObservableList<E> source, long interval, TimeUnit unit, Scheduler scheduler, boolean debounce )
+	{
+		super( source );
+		this.shadow = new SnapshotList.Shadow<>( source );
+		this.scheduler = scheduler;
+		this.interval = unit.toNanos( interval );
+		this.debounce = debounce;
+		this.lastEmit = scheduler.nanoTime() - this.interval;
+		source.addListener( new WeakListChangeListener<>( listener ) );
+	}
+
+	private synchronized void sourceChanged()
+	{
+		long now = scheduler.nanoTime();
+		lastChange = now;
+		if( !scheduled )
+		{
+			scheduled = true;
+			long delay = debounce ? interval : lastEmit + interval - now;
+			scheduler.schedule( emitTask, Math.max( 0, delay ), TimeUnit.NANOSECONDS );
+		}
+	}
+}
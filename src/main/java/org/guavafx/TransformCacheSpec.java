@@ -0,0 +1,204 @@
+/*
+ * Copyright 2013 SmartBear Software
+ *
+ * Licensed under the EUPL, Version 1.1 or - as soon they will be approved by the European Commission - subsequent
+ * versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is
+ * distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the Licence for the specific language governing permissions and limitations
+ * under the Licence.
+ */
+package org.guavafx;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.base.Function;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+
+/**
+ * Describes how ObservableLists.transform() memoizes the results of its function, so that an element which is removed
+ * and re-added yields the same transformed value.
+ *
+ * Specs are immutable; each method returns a modified copy. The default spec, which is what transform( list, function
+ * ) uses, compares elements by identity and keeps the results softly referenced. Note that a cache with equality keys
+ * holds strong references to its keys, and should usually be bounded using maximumSize().
+ */
+public final class TransformCacheSpec
+{
+	private enum Values
+	{
+		STRONG, WEAK, SOFT
+	}
+
+	private static final TransformCacheSpec DEFAULTS = new TransformCacheSpec( true, true, Values.SOFT, -1, false );
+	private static final TransformCacheSpec NONE = new TransformCacheSpec( false, true, Values.STRONG, -1, false );
+
+	private final boolean enabled;
+	private final boolean identityKeys;
+	private final Values values;
+	private final long maximumSize;
+	private final boolean recordStats;
+
+	private TransformCacheSpec( boolean enabled, boolean identityKeys, Values values, long maximumSize,
+			boolean recordStats )
+	{
+		this.enabled = enabled;
+		this.identityKeys = identityKeys;
+		this.values = values;
+		this.maximumSize = maximumSize;
+		this.recordStats = recordStats;
+	}
+
+	/**
+	 * Returns the spec used by default: identity keys and soft values, without any size limit.
+	 *
+	 * @return
+	 */
+	public static TransformCacheSpec defaults()
+	{
+		return DEFAULTS;
+	}
+
+	/**
+	 * Returns a spec which disables caching, so the function is applied every time an element is added. Caching stays
+	 * disabled in the specs derived from it.
+	 *
+	 * @return
+	 */
+	public static TransformCacheSpec none()
+	{
+		return NONE;
+	}
+
+	/**
+	 * Compares elements by identity (==), and lets them be garbage collected while cached.
+	 *
+	 * @return
+	 */
+	public TransformCacheSpec identityKeys()
+	{
+		return new TransformCacheSpec( enabled, true, values, maximumSize, recordStats );
+	}
+
+	/**
+	 * Compares elements using equals().
+	 *
+	 * @return
+	 */
+	public TransformCacheSpec equalityKeys()
+	{
+		return new TransformCacheSpec( enabled, false, values, maximumSize, recordStats );
+	}
+
+	/**
+	 * Keeps the results until they are evicted due to the size limit.
+	 *
+	 * @return
+	 */
+	public TransformCacheSpec strongValues()
+	{
+		return new TransformCacheSpec( enabled, identityKeys, Values.STRONG, maximumSize, recordStats );
+	}
+
+	/**
+	 * Keeps the results only as long as they are referenced elsewhere.
+	 *
+	 * @return
+	 */
+	public TransformCacheSpec weakValues()
+	{
+		return new TransformCacheSpec( enabled, identityKeys, Values.WEAK, maximumSize, recordStats );
+	}
+
+	/**
+	 * Keeps the results until the garbage collector needs the memory.
+	 *
+	 * @return
+	 */
+	public TransformCacheSpec softValues()
+	{
+		return new TransformCacheSpec( enabled, identityKeys, Values.SOFT, maximumSize, recordStats );
+	}
+
+	/**
+	 * Limits the number of cached results, evicting the least recently used ones.
+	 *
+	 * @param maximumSize
+	 * @return
+	 */
+	public TransformCacheSpec maximumSize( long maximumSize )
+	{
+		checkArgument( maximumSize >= 0, "maximumSize must not be negative" );
+		return new TransformCacheSpec( enabled, identityKeys, values, maximumSize, recordStats );
+	}
+
+	/**
+	 * Records cache statistics, which can be read using ObservableLists.transformCacheStats().
+	 *
+	 * @return
+	 */
+	public TransformCacheSpec recordStats()
+	{
+		return new TransformCacheSpec( enabled, identityKeys, values, maximumSize, true );
+	}
+
+	/**
+	 * Returns the given function, memoized according to this spec.
+	 */
+	<F, T> Function<F, T> memoize( final Function<F, T> function )
+	{
+		if( !enabled )
+		{
+			return function;
+		}
+
+		CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder();
+		if( identityKeys )
+		{
+			builder.weakKeys();
+		}
+		if( values == Values.WEAK )
+		{
+			builder.weakValues();
+		}
+		else if( values == Values.SOFT )
+		{
+			builder.softValues();
+		}
+		if( maximumSize >= 0 )
+		{
+			builder.maximumSize( maximumSize );
+		}
+		if( recordStats )
+		{
+			builder.recordStats();
+		}
+
+		return builder.build( new CacheLoader<F, T>()
+		{
+			@Override
+			public T load( F key ) throws Exception
+			{
+				return function.apply( key );
+			}
+		} );
+	}
+
+	@Override
+	public String toString()
+	{
+		if( !enabled )
+		{
+			return "TransformCacheSpec{none}";
+		}
+		return "TransformCacheSpec{" + ( identityKeys ? "identityKeys" : "equalityKeys" ) + ", "
+				+ values.name().toLowerCase() + "Values" + ( maximumSize >= 0 ? ", maximumSize=" + maximumSize : "" )
+				+ ( recordStats ? ", recordStats" : "" ) + "}";
+	}
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2013 SmartBear Software
+ *
+ * Licensed under the EUPL, Version 1.1 or - as soon they will be approved by the European Commission - subsequent
+ * versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is
+ * distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the Licence for the specific language governing permissions and limitations
+ * under the Licence.
+ */
+package org.guavafx;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javafx.beans.Observable;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import javafx.collections.WeakListChangeListener;
+
+import com.google.common.base.Function;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheStats;
+
+/**
+ * An ObservableList containing the result of applying a function to each element of a source list.
+ *
+ * The function is only applied to added elements. Removals, permutations and updates of the source list are
+ * translated one-to-one into changes of the transformed list, without touching the other elements. The function is
+ * applied to the elements added by a change as described by a BulkEvaluation. Optionally, the elements are observed
+ * through an ElementObserver, re-applying the function to a single element when its properties change.
+ *
+ * The list is lazy, see LazyDerivedList. Since the function is usually memoized, recomputing the contents after
+ * being detached yields the same transformed values.
+ */
+final class TransformedList<F, T> extends LazyDerivedList<T>
+{
+	private final IndexedTree<T> elements = new IndexedTree<>();
+	private final Function<? super F, ? extends T> function;
+	private final BulkEvaluation bulkEvaluation;
+
+	private final ObservableList<F> source;
+
+	private final ListChangeListener<F> sourceListener = new ListChangeListener<F>()
+	{
+		@Override
+		public void onChanged( ListChangeListener.Change<? extends F> change )
+		{
+			if( !isObserved() )
+			{
+				return;
+			}
+			recordSourceChange( change );
+			beginChange();
+			while( change.next() )
+			{
+				if( change.wasPermutated() )
+				{
+					sourcePermutated( change );
+				}
+				else if( change.wasUpdated() )
+				{
+					for( int i = change.getFrom(); i < change.getTo(); i++ )
+					{
+						nextUpdate( i );
+					}
+				}
+				else
+				{
+					if( change.wasRemoved() )
+					{
+						int from = change.getFrom();
+						nextRemove( from, elements.removeRange( from, from + change.getRemovedSize() ) );
+						if( elementObserver != null )
+						{
+							elementObserver.removed( from, from + change.getRemovedSize() );
+						}
+					}
+					if( change.wasAdded() )
+					{
+						sourceAdded( change.getFrom(), change.getAddedSubList() );
+					}
+				}
+			}
+			endChange();
+		}
+	};
+	private final ListChangeListener<F> weakSourceListener = new WeakListChangeListener<>( sourceListener );
+
+	private final ElementObserver<F> elementObserver;
+
+	TransformedList( ObservableList<F> source, Function<? super F, ? extends T> function,
+			BulkEvaluation bulkEvaluation )
+	{
+		this( source, function, bulkEvaluation, null );
+	}
+
+	/**
+	 * Creates a list which also re-applies the function to an element whenever one of the Observables extracted from
+	 * it is invalidated, unless the extractor is null.
+	 */
+	TransformedList( ObservableList<F> source, Function<? super F, ? extends T> function,
+			BulkEvaluation bulkEvaluation, Function<? super F, ? extends Observable[]> extractor )
+	{
+		this.source = source;
+		this.function = function;
+		this.bulkEvaluation = bulkEvaluation;
+		this.elementObserver = extractor == null ? null : new ElementObserver<F>( extractor,
+				new ElementObserver.Callback()
+				{
+					@Override
+					public void elementInvalidated( int index )
+					{
+						if( isObserved() )
+						{
+							beginChange();
+							elementChanged( index );
+							endChange();
+						}
+					}
+				} );
+	}
+
+	@Override
+	CacheStats getCacheStats()
+	{
+		return function instanceof Cache ? ( ( Cache<?, ?> )function ).stats() : null;
+	}
+
+	@Override
+	public T get( int index )
+	{
+		validate();
+		return elements.get( index );
+	}
+
+	@Override
+	public int size()
+	{
+		validate();
+		return elements.size();
+	}
+
+	@Override
+	protected void connect()
+	{
+		source.addListener( weakSourceListener );
+		sourceAdded( 0, source );
+	}
+
+	@Override
+	protected void disconnect()
+	{
+		source.removeListener( weakSourceListener );
+		elements.clear();
+		if( elementObserver != null )
+		{
+			elementObserver.clear();
+		}
+	}
+
+	private void sourceAdded( int from, List<? extends F> added )
+	{
+		List<T> transformed = bulkEvaluation.apply( added, function );
+		int[] weights = new int[transformed.size()];
+		Arrays.fill( weights, 1 );
+		elements.insertAll( from, transformed, weights );
+		if( elementObserver != null )
+		{
+			elementObserver.added( from, added );
+		}
+		nextAdd( from, from + transformed.size() );
+	}
+
+	private void sourcePermutated( ListChangeListener.Change<? extends F> change )
+	{
+		int from = change.getFrom();
+		int to = change.getTo();
+		List<T> values = elements.removeRange( from, to );
+		List<T> permutated = new ArrayList<>( values );
+		int[] permutation = new int[to - from];
+		for( int i = from; i < to; i++ )
+		{
+			permutation[i - from] = change.getPermutation( i );
+			permutated.set( permutation[i - from] - from, values.get( i - from ) );
+		}
+		int[] weights = new int[to - from];
+		Arrays.fill( weights, 1 );
+		elements.insertAll( from, permutated, weights );
+		if( elementObserver != null )
+		{
+			elementObserver.permutated( change );
+		}
+		nextPermutation( from, to, permutation );
+	}
+
+	/**
+	 * Re-applies the function to an element which has changed, and reports the new value as set, or the element as
+	 * updated if the value is the same.
+	 */
+	private void elementChanged( int index )
+	{
+		IndexedTree.Node<T> node = elements.node( index );
+		T old = node.getValue();
+		T value = function.apply( source.get( index ) );
+		if( value == old )
+		{
+			nextUpdate( index );
+		}
+		else
+		{
+			elements.setValue( node, value );
+			nextSet( index, old );
+		}
+	}
+}
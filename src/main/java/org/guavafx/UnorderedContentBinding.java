@@ -0,0 +1,214 @@
+/*
+ * Copyright 2013 SmartBear Software
+ *
+ * Licensed under the EUPL, Version 1.1 or - as soon they will be approved by the European Commission - subsequent
+ * versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is
+ * distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the Licence for the specific language governing permissions and limitations
+ * under the Licence.
+ */
+package org.guavafx;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+
+import com.google.common.base.Objects;
+
+/**
+ * Keeps the content of a target list equal to that of the source lists it is bound to, as done by
+ * ObservableLists.bindContentUnordered().
+ *
+ * Since the order of the target list doesn't matter, added elements are appended, and removed elements are replaced by
+ * the last elements of the list. The positions of all elements are kept in a hash index, so each removal is O(1). The
+ * elements removed by one source change are taken out of the target list as a single range at its end, after which the
+ * displaced elements are set into the vacated positions. If the target is a BatchedObservableList, this is done in a
+ * batch, so that it is reported as one change.
+ *
+ * The target list may be modified by others (e.g. reordered), so positions are verified before use, and the index is
+ * rebuilt when it turns out to be stale.
+ */
+final class UnorderedContentBinding<E> implements ListChangeListener<E>
+{
+	private final List<E> target;
+	private Map<E, List<Integer>> positions;
+	private int indexedSize;
+
+	UnorderedContentBinding( List<E> target )
+	{
+		this.target = target;
+	}
+
+	@Override
+	public void onChanged( ListChangeListener.Change<? extends E> change )
+	{
+		final List<E> removed = new ArrayList<>();
+		final List<E> added = new ArrayList<>();
+		while( change.next() )
+		{
+			if( !change.wasPermutated() && !change.wasUpdated() )
+			{
+				removed.addAll( change.getRemoved() );
+				added.addAll( change.getAddedSubList() );
+			}
+		}
+
+		if( target instanceof BatchedObservableList )
+		{
+			( ( BatchedObservableList<E> )target ).runBatch( new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					apply( removed, added );
+				}
+			} );
+		}
+		else
+		{
+			apply( removed, added );
+		}
+	}
+
+	private void apply( List<E> removed, List<E> added )
+	{
+		if( positions == null || indexedSize != target.size() )
+		{
+			rebuildIndex();
+		}
+		if( !removed.isEmpty() )
+		{
+			removeAll( removed );
+		}
+
+		int position = target.size();
+		target.addAll( added );
+		for( E element : added )
+		{
+			positionsOf( element ).add( position++ );
+		}
+		indexedSize = target.size();
+	}
+
+	/**
+	 * Removes one occurrence of each of the given elements, by removing as many elements from the end of the list, and
+	 * setting those of them which weren't removed into the positions of the removed elements.
+	 */
+	private void removeAll( List<E> removed )
+	{
+		List<Integer> holes = takePositions( removed, false );
+		if( holes == null )
+		{
+			rebuildIndex();
+			holes = takePositions( removed, true );
+		}
+		if( holes.isEmpty() )
+		{
+			return;
+		}
+
+		int size = target.size();
+		int tail = size - holes.size();
+		Set<Integer> vacated = new HashSet<>( holes );
+		Collections.sort( holes );
+		List<E> moved = new ArrayList<>();
+		for( int position = tail; position < size; position++ )
+		{
+			if( !vacated.contains( position ) )
+			{
+				E element = target.get( position );
+				List<Integer> elementPositions = positions.get( element );
+				if( elementPositions == null || !elementPositions.remove( Integer.valueOf( position ) ) )
+				{
+					// The index is stale, so start over with a fresh one.
+					rebuildIndex();
+					removeAll( removed );
+					return;
+				}
+				elementPositions.add( holes.get( moved.size() ) );
+				moved.add( element );
+			}
+		}
+
+		if( target instanceof ObservableList )
+		{
+			( ( ObservableList<E> )target ).remove( tail, size );
+		}
+		else
+		{
+			target.subList( tail, size ).clear();
+		}
+		for( int i = 0; i < moved.size(); i++ )
+		{
+			target.set( holes.get( i ), moved.get( i ) );
+		}
+		indexedSize = target.size();
+	}
+
+	/**
+	 * Takes a verified position of each of the given elements out of the index. Returns null if the index turns out to
+	 * be stale, unless it is known to be fresh, in which case the elements which aren't in the list are skipped.
+	 */
+	private List<Integer> takePositions( List<E> elements, boolean fresh )
+	{
+		List<Integer> taken = new ArrayList<>( elements.size() );
+		for( E element : elements )
+		{
+			List<Integer> elementPositions = positions.get( element );
+			if( elementPositions == null )
+			{
+				if( fresh )
+				{
+					continue;
+				}
+				return null;
+			}
+			int position = elementPositions.remove( elementPositions.size() - 1 );
+			if( position >= target.size() || !Objects.equal( target.get( position ), element ) )
+			{
+				return null;
+			}
+			taken.add( position );
+			if( elementPositions.isEmpty() )
+			{
+				positions.remove( element );
+			}
+		}
+		return taken;
+	}
+
+	private List<Integer> positionsOf( E element )
+	{
+		List<Integer> elementPositions = positions.get( element );
+		if( elementPositions == null )
+		{
+			elementPositions = new ArrayList<>( 1 );
+			positions.put( element, elementPositions );
+		}
+		return elementPositions;
+	}
+
+	private void rebuildIndex()
+	{
+		positions = new HashMap<>();
+		int position = 0;
+		for( E element : target )
+		{
+			positionsOf( element ).add( position++ );
+		}
+		indexedSize = target.size();
+	}
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2013 SmartBear Software
+ *
+ * Licensed under the EUPL, Version 1.1 or - as soon they will be approved by the European Commission - subsequent
+ * versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is
+ * distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the Licence for the specific language governing permissions and limitations
+ * under the Licence.
+ */
+package org.guavafx;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javafx.collections.ListChangeListener;
+
+/**
+ * Base class for lazy lists which contain a subset of the elements of a source list, such as FilteredList and
+ * FusedList.
+ *
+ * Each element of the source list is stored in an IndexedTree with a weight of 1 if it is included in this list and
+ * 0 otherwise, which maps indexes between the source list and this list in O(log n). Subclasses decide which elements
+ * are included, and translate source changes into the corresponding minimal changes of this list using the methods
+ * below, between beginChange() and endChange().
+ */
+abstract class WeightedList<E> extends LazyDerivedList<E>
+{
+	protected final IndexedTree<E> elements = new IndexedTree<>();
+
+	@Override
+	public E get( int index )
+	{
+		validate();
+		return elements.nodeAtWeight( index ).getValue();
+	}
+
+	@Override
+	public int size()
+	{
+		validate();
+		return elements.totalWeight();
+	}
+
+	/**
+	 * Inserts the values at the given source index, reporting those with a weight of 1 as added.
+	 */
+	protected final void insertElements( int from, List<? extends E> values, int[] weights )
+	{
+		int count = 0;
+		for( int weight : weights )
+		{
+			count += weight;
+		}
+		elements.insertAll( from, values, weights );
+
+		if( count > 0 )
+		{
+			int viewFrom = elements.weightBefore( from );
+			nextAdd( viewFrom, viewFrom + count );
+		}
+	}
+
+	/**
+	 * Removes the elements between the given source indexes, reporting the included ones as removed.
+	 */
+	protected final void removeElements( int from, int to )
+	{
+		int viewFrom = elements.weightBefore( from );
+		List<E> removed = new ArrayList<>();
+		for( int i = from; i < to; i++ )
+		{
+			IndexedTree.Node<E> node = elements.node( i );
+			if( node.getWeight() > 0 )
+			{
+				removed.add( node.getValue() );
+			}
+		}
+		elements.removeRange( from, to );
+
+		if( !removed.isEmpty() )
+		{
+			nextRemove( viewFrom, removed );
+		}
+	}
+
+	/**
+	 * Replaces the element at the given source index, reporting it as updated if the same value stays included, as
+	 * set if a different value replaces an included one, and as added or removed if it enters or leaves this list.
+	 */
+	protected final void updateElement( int index, E value, boolean included )
+	{
+		IndexedTree.Node<E> node = elements.node( index );
+		E old = node.getValue();
+		elements.setValue( node, value );
+		int viewIndex = elements.weightBefore( node );
+
+		if( node.getWeight() > 0 && included )
+		{
+			if( old == value )
+			{
+				nextUpdate( viewIndex );
+			}
+			else
+			{
+				nextSet( viewIndex, old );
+			}
+		}
+		else
+		{
+			setIncluded( node, viewIndex, old, included );
+		}
+	}
+
+	/**
+	 * Includes or excludes the element of the given node, which is at the given index of this list or would be if it
+	 * was included, reporting it as added or removed if that changes its weight.
+	 */
+	protected final void setIncluded( IndexedTree.Node<E> node, int viewIndex, boolean included )
+	{
+		setIncluded( node, viewIndex, node.getValue(), included );
+	}
+
+	private void setIncluded( IndexedTree.Node<E> node, int viewIndex, E old, boolean included )
+	{
+		if( node.getWeight() > 0 && !included )
+		{
+			elements.setWeight( node, 0 );
+			nextRemove( viewIndex, old );
+		}
+		else if( node.getWeight() == 0 && included )
+		{
+			elements.setWeight( node, 1 );
+			nextAdd( viewIndex, viewIndex + 1 );
+		}
+	}
+
+	/**
+	 * Applies a permutation of the source list, reporting the resulting permutation of the included elements.
+	 */
+	protected final void permutateElements( ListChangeListener.Change<?> change )
+	{
+		int from = change.getFrom();
+		int to = change.getTo();
+		int viewFrom = elements.weightBefore( from );
+
+		int[] oldWeights = new int[to - from];
+		for( int i = from; i < to; i++ )
+		{
+			oldWeights[i - from] = elements.node( i ).getWeight();
+		}
+		List<E> values = elements.removeRange( from, to );
+		List<E> permutated = new ArrayList<>( values );
+		int[] weights = new int[to - from];
+		int[] oldViewIndexes = new int[to - from];
+		int viewCount = 0;
+		for( int i = from; i < to; i++ )
+		{
+			int target = change.getPermutation( i ) - from;
+			permutated.set( target, values.get( i - from ) );
+			if( oldWeights[i - from] > 0 )
+			{
+				weights[target] = 1;
+				oldViewIndexes[i - from] = viewCount++;
+			}
+			else
+			{
+				oldViewIndexes[i - from] = -1;
+			}
+		}
+		elements.insertAll( from, permutated, weights );
+
+		if( viewCount > 0 )
+		{
+			int[] newViewIndexes = new int[to - from];
+			for( int i = 0, viewIndex = 0; i < weights.length; i++ )
+			{
+				newViewIndexes[i] = viewFrom + viewIndex;
+				viewIndex += weights[i];
+			}
+			int[] viewPermutation = new int[viewCount];
+			for( int i = from; i < to; i++ )
+			{
+				int oldViewIndex = oldViewIndexes[i - from];
+				if( oldViewIndex >= 0 )
+				{
+					viewPermutation[oldViewIndex] = newViewIndexes[change.getPermutation( i ) - from];
+				}
+			}
+			nextPermutation( viewFrom, viewFrom + viewCount, viewPermutation );
+		}
+	}
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2013 SmartBear Software
+ *
+ * Licensed under the EUPL, Version 1.1 or - as soon they will be approved by the European Commission - subsequent
+ * versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is
+ * distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the Licence for the specific language governing permissions and limitations
+ * under the Licence.
+ */
+package org.guavafx;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javafx.beans.InvalidationListener;
+import javafx.beans.Observable;
+import javafx.beans.WeakInvalidationListener;
+import javafx.beans.value.ObservableIntegerValue;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import javafx.collections.WeakListChangeListener;
+
+/**
+ * An ObservableList containing a slice of at most size elements of a source list, starting at a movable offset.
+ *
+ * Source changes which don't intersect the window (that is, which start after its end) are ignored without any work.
+ * Other changes, as well as moving the offset, update the window by diffing it against the new slice of the source
+ * list, which is O(size) regardless of the size of the source list, and report the difference, e.g. moving the offset
+ * by k elements is reported as removing k elements at one end and adding k elements at the other. Updates of elements
+ * within the window are forwarded as updates.
+ */
+final class WindowList<E> extends SnapshotList<E>
+{
+	private final ObservableList<E> source;
+	private final ObservableIntegerValue offset;
+	private final int size;
+
+	private final ListChangeListener<E> sourceListener = new ListChangeListener<E>()
+	{
+		@Override
+		public void onChanged( ListChangeListener.Change<? extends E> change )
+		{
+			recordSourceChange( change );
+			int start = getStart();
+			long end = ( long )start + size;
+			boolean structural = false;
+			List<Integer> updated = new ArrayList<>();
+			while( change.next() )
+			{
+				if( change.getFrom() >= end )
+				{
+					break;
+				}
+				if( change.wasUpdated() )
+				{
+					for( int i = Math.max( start, change.getFrom() ); i < Math.min( end, change.getTo() ); i++ )
+					{
+						updated.add( i - start );
+					}
+				}
+				else
+				{
+					structural = true;
+				}
+			}
+
+			if( structural )
+			{
+				synchronize();
+			}
+			else if( !updated.isEmpty() )
+			{
+				beginChange();
+				for( int index : updated )
+				{
+					nextUpdate( index );
+				}
+				endChange();
+			}
+		}
+	};
+
+	private final InvalidationListener offsetListener = new InvalidationListener()
+	{
+		@Override
+		public void invalidated( Observable observable )
+		{
+			synchronize();
+		}
+	};
+
+	WindowList( ObservableList<E> source, ObservableIntegerValue offset, int size )
+	{
+		super( slice( source, Math.max( 0, offset.get() ), size ) );
+		this.source = source;
+		this.offset = offset;
+		this.size = size;
+		source.addListener( new WeakListChangeListener<>( sourceListener ) );
+		offset.addListener( new WeakInvalidationListener( offsetListener ) );
+	}
+
+	private int getStart()
+	{
+		return Math.max( 0, offset.get() );
+	}
+
+	private void synchronize()
+	{
+		synchronize( slice( source, getStart(), size ) );
+	}
+
+	private static <E> List<E> slice( List<E> source, int start, int size )
+	{
+		int from = Math.min( start, source.size() );
+		int to = ( int )Math.min( ( long )start + size, source.size() );
+		return source.subList( from, to );
+	}
+}
@@ -47,4 +47,29 @@ public class FluentObservableListTest {
 
 		assertThat( fluentList, equalTo( asList( 4, 36 ) ) );
     }
+
+	@Test
+	public void chainedStagesAreFusedIntoOneList()
+	{
+		ObservableList<Integer> allElements = FXCollections.observableArrayList( 1, 2, 3, 4, 5, 6 );
+
+		FluentObservableList evenSquares = filter( allElements, isEven ).transform( square );
+		ObservableList<Integer> fluentList = evenSquares.filter( new Predicate<Integer>()
+		{
+			@Override
+			public boolean apply( Integer input )
+			{
+				return input > 4;
+			}
+		} );
+
+		assertThat( fluentList, equalTo( asList( 16, 36 ) ) );
+		assertThat( ( ObservableList<Integer> )evenSquares, equalTo( asList( 4, 16, 36 ) ) );
+
+		allElements.add( 0, 8 );
+		allElements.remove( Integer.valueOf( 4 ) );
+
+		assertThat( fluentList, equalTo( asList( 64, 36 ) ) );
+		assertThat( ( ObservableList<Integer> )evenSquares, equalTo( asList( 64, 4, 36 ) ) );
+	}
 }
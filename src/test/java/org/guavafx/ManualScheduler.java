@@ -0,0 +1,100 @@
+/*
+ * Copyright 2013 SmartBear Software
+ * 
+ * Licensed under the EUPL, Version 1.1 or - as soon they will be approved by the European Commission - subsequent
+ * versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ * 
+ * http://ec.europa.eu/idabc/eupl
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is
+ * distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the Licence for the specific language governing permissions and limitations
+ * under the Licence.
+ */
+package org.guavafx;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A Scheduler with a manually advanced clock, which runs its tasks when the clock passes their due time.
+ */
+public class ManualScheduler extends Scheduler
+{
+	private final List<Task> tasks = new ArrayList<>();
+	private long now = 0;
+
+	private static class Task
+	{
+		private final Runnable runnable;
+		private final long dueTime;
+
+		private Task( Runnable runnable, long dueTime )
+		{
+			this.runnable = runnable;
+			this.dueTime = dueTime;
+		}
+	}
+
+	@Override
+	public long nanoTime()
+	{
+		return now;
+	}
+
+	@Override
+	public void schedule( Runnable task, long delay, TimeUnit unit )
+	{
+		tasks.add( new Task( task, now + Math.max( 0, unit.toNanos( delay ) ) ) );
+	}
+
+	@Override
+	public boolean isSchedulerThread()
+	{
+		return false;
+	}
+
+	public int getQueuedTaskCount()
+	{
+		return tasks.size();
+	}
+
+	/**
+	 * Advances the clock, running all tasks which become due, in order.
+	 */
+	public void advance( long time, TimeUnit unit )
+	{
+		long target = now + unit.toNanos( time );
+		while( true )
+		{
+			Task next = null;
+			for( Task task : tasks )
+			{
+				if( task.dueTime <= target && ( next == null || task.dueTime < next.dueTime ) )
+				{
+					next = task;
+				}
+			}
+			if( next == null )
+			{
+				break;
+			}
+			tasks.remove( next );
+			now = Math.max( now, next.dueTime );
+			next.runnable.run();
+		}
+		now = target;
+	}
+
+	/**
+	 * Runs all tasks which are due now.
+	 */
+	public void runDueTasks()
+	{
+		advance( 0, TimeUnit.NANOSECONDS );
+	}
+}
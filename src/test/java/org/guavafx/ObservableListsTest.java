@@ -15,22 +15,48 @@
  */
 package org.guavafx;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static java.util.Arrays.asList;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import java.lang.management.ManagementFactory;
 import java.lang.ref.WeakReference;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import javafx.beans.Observable;
+import javafx.beans.property.IntegerProperty;
+import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.SimpleIntegerProperty;
+import javafx.beans.property.SimpleObjectProperty;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.beans.property.StringProperty;
+import javafx.beans.value.ObservableIntegerValue;
+import javafx.beans.value.ObservableLongValue;
+import javafx.beans.value.ObservableValue;
 import javafx.collections.FXCollections;
 import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
+import javafx.collections.ObservableMap;
+import javafx.util.Callback;
 
 import org.junit.Ignore;
 import org.junit.Test;
@@ -84,6 +110,32 @@ public class ObservableListsTest
 		assertFalse( binder.equals( bindee ) );
 	}
 
+	@Test
+	public void bindContentUnorderedRemovesSeveralElementsInOneChange()
+	{
+		ObservableList<Integer> bindee = FXCollections.observableArrayList( 1, 2, 3, 4, 5, 6, 7, 8, 9, 10 );
+		BatchedObservableList<Integer> binder = ObservableLists.batched( FXCollections.<Integer> observableArrayList() );
+		ObservableLists.bindContentUnordered( binder, bindee );
+		assertThat( binder, equalTo( ( List<Integer> )bindee ) );
+		final List<String> changes = new ArrayList<>();
+		binder.addListener( new ListChangeListener<Integer>()
+		{
+			@Override
+			public void onChanged( ListChangeListener.Change<? extends Integer> change )
+			{
+				while( change.next() )
+				{
+					changes.add( change.getFrom() + ":" + change.getRemoved() + "->" + change.getAddedSubList() );
+				}
+				changes.add( "end" );
+			}
+		} );
+
+		bindee.removeAll( 2, 5 );
+		assertThat( binder, equalTo( asList( 1, 9, 3, 4, 10, 6, 7, 8 ) ) );
+		assertThat( changes, equalTo( asList( "1:[2]->[9]", "4:[5]->[10]", "8:[9, 10]->[]", "end" ) ) );
+	}
+
 	@Test
 	@Ignore( "This is no longer the behavior, the callers MUST keep the references themselves." )
 	public void bindContentUnorderedShouldKeepAStrongReferenceToTheBindee() throws InterruptedException
@@ -121,6 +173,297 @@ public class ObservableListsTest
 		assertThat( sorted, equalTo( Arrays.asList( 1, 1, 3, 5, 6, 7, 8, 9 ) ) );
 	}
 
+	@Test
+	public void bindSortedAppliesALargeChangeAsOne()
+	{
+		ObservableList<Integer> unsorted = FXCollections.observableArrayList();
+		ObservableList<Integer> sorted = FXCollections.observableArrayList();
+		ObservableLists.bindSorted( sorted, unsorted, Ordering.natural() );
+		final AtomicInteger changes = new AtomicInteger();
+		sorted.addListener( new ListChangeListener<Integer>()
+		{
+			@Override
+			public void onChanged( ListChangeListener.Change<? extends Integer> change )
+			{
+				changes.incrementAndGet();
+			}
+		} );
+
+		Random random = new Random( 0 );
+		List<Integer> elements = new ArrayList<>();
+		for( int i = 0; i < 10000; i++ )
+		{
+			elements.add( random.nextInt( 1000 ) );
+		}
+		unsorted.setAll( elements );
+		assertThat( changes.get(), equalTo( 1 ) );
+		assertThat( sorted, equalTo( Ordering.natural().sortedCopy( elements ) ) );
+
+		unsorted.remove( 5000, 10000 );
+		assertThat( changes.get(), equalTo( 2 ) );
+		assertThat( sorted, equalTo( Ordering.natural().sortedCopy( unsorted ) ) );
+
+		unsorted.addAll( 1, 2, 3 );
+		assertThat( changes.get(), equalTo( 5 ) );
+		assertThat( sorted, equalTo( Ordering.natural().sortedCopy( unsorted ) ) );
+	}
+
+	@Test
+	public void bindSortedInsertsAndRemovesElementsInPlace()
+	{
+		final Map<String, Integer> priorities = new HashMap<>();
+		priorities.put( "a", 1 );
+		priorities.put( "b", 2 );
+		priorities.put( "c", 3 );
+		priorities.put( "d", 4 );
+		IntegerProperty prioritiesChanged = new SimpleIntegerProperty();
+		ObservableList<String> unsorted = FXCollections.observableArrayList( "c", "a", "d" );
+		ObservableList<String> sorted = FXCollections.observableArrayList();
+		ObservableLists.bindSorted( sorted, unsorted, new Ordering<String>()
+		{
+			@Override
+			public int compare( String left, String right )
+			{
+				return priorities.get( left ).compareTo( priorities.get( right ) );
+			}
+		}, prioritiesChanged );
+		assertThat( sorted, equalTo( asList( "a", "c", "d" ) ) );
+
+		final List<String> changes = new ArrayList<>();
+		sorted.addListener( new ListChangeListener<String>()
+		{
+			@Override
+			public void onChanged( ListChangeListener.Change<? extends String> change )
+			{
+				while( change.next() )
+				{
+					changes.add( change.getFrom() + ":" + change.getRemoved() + "->" + change.getAddedSubList() );
+				}
+			}
+		} );
+
+		unsorted.add( "b" );
+		unsorted.remove( "d" );
+		assertThat( changes, equalTo( asList( "1:[]->[b]", "3:[d]->[]" ) ) );
+
+		changes.clear();
+		priorities.put( "a", 5 );
+		prioritiesChanged.set( 1 );
+		assertThat( sorted, equalTo( asList( "b", "c", "a" ) ) );
+		assertThat( changes, equalTo( asList( "0:[a]->[]", "2:[]->[a]" ) ) );
+	}
+
+	@Test
+	public void sortedReportsPositionalChangesAndPermutatesOnNewComparator()
+	{
+		ObservableList<Integer> unsorted = FXCollections.observableArrayList( 3, 1, 4 );
+		ObjectProperty<Comparator<? super Integer>> comparator = new SimpleObjectProperty<Comparator<? super Integer>>(
+				Ordering.natural() );
+		ObservableList<Integer> sorted = ObservableLists.sorted( unsorted, comparator );
+		assertThat( sorted, equalTo( asList( 1, 3, 4 ) ) );
+
+		final List<String> changes = new ArrayList<>();
+		sorted.addListener( new ListChangeListener<Integer>()
+		{
+			@Override
+			public void onChanged( ListChangeListener.Change<? extends Integer> change )
+			{
+				while( change.next() )
+				{
+					if( change.wasPermutated() )
+					{
+						changes.add( "permutated " + change.getFrom() + "-" + change.getTo() );
+					}
+					else
+					{
+						changes.add( change.getFrom() + ":" + change.getRemoved() + "->" + change.getAddedSubList() );
+					}
+				}
+			}
+		} );
+
+		unsorted.add( 2 );
+		unsorted.remove( Integer.valueOf( 4 ) );
+		assertThat( sorted, equalTo( asList( 1, 2, 3 ) ) );
+		assertThat( changes, equalTo( asList( "1:[]->[2]", "3:[4]->[]" ) ) );
+
+		changes.clear();
+		comparator.set( Ordering.natural().reverse() );
+		assertThat( sorted, equalTo( asList( 3, 2, 1 ) ) );
+		assertThat( changes, equalTo( asList( "permutated 0-3" ) ) );
+	}
+
+	@Test
+	public void sortedKeepsEqualElementsInSourceOrder()
+	{
+		Ordering<String> byLength = new Ordering<String>()
+		{
+			@Override
+			public int compare( String left, String right )
+			{
+				return Integer.compare( left.length(), right.length() );
+			}
+		};
+		ObservableList<String> unsorted = FXCollections.observableArrayList( "bb", "a", "cc" );
+		ObjectProperty<Comparator<? super String>> comparator = new SimpleObjectProperty<Comparator<? super String>>(
+				byLength );
+		ObservableList<String> sorted = ObservableLists.sorted( unsorted, comparator );
+		assertThat( sorted, equalTo( asList( "a", "bb", "cc" ) ) );
+
+		unsorted.add( 0, "dd" );
+		assertThat( sorted, equalTo( asList( "a", "dd", "bb", "cc" ) ) );
+
+		comparator.set( byLength.reverse() );
+		assertThat( sorted, equalTo( asList( "dd", "bb", "cc", "a" ) ) );
+
+		FXCollections.sort( unsorted );
+		assertThat( sorted, equalTo( asList( "bb", "cc", "dd", "a" ) ) );
+	}
+
+	@Test( timeout = 20000 )
+	public void sortedAppliesLargeChangesInOnePass()
+	{
+		Random random = new Random( 0 );
+		ObservableList<Integer> unsorted = FXCollections.observableArrayList();
+		for( int i = 0; i < 100000; i++ )
+		{
+			unsorted.add( random.nextInt() );
+		}
+		final ObservableList<Integer> sorted = ObservableLists.sorted( unsorted, Ordering.natural() );
+		final List<Integer> replayed = new ArrayList<>( sorted );
+		sorted.addListener( new ListChangeListener<Integer>()
+		{
+			@Override
+			public void onChanged( ListChangeListener.Change<? extends Integer> change )
+			{
+				while( change.next() )
+				{
+					List<Integer> removed = replayed.subList( change.getFrom(), change.getFrom() + change.getRemovedSize() );
+					assertThat( removed, equalTo( ( List<Integer> )change.getRemoved() ) );
+					removed.clear();
+					replayed.addAll( change.getFrom(), change.getAddedSubList() );
+				}
+			}
+		} );
+
+		List<Integer> added = new ArrayList<>();
+		for( int i = 0; i < 100000; i++ )
+		{
+			added.add( random.nextInt() );
+		}
+		unsorted.addAll( added );
+		assertThat( sorted, equalTo( Ordering.natural().sortedCopy( unsorted ) ) );
+		assertThat( replayed, equalTo( ( List<Integer> )sorted ) );
+
+		unsorted.removeAll( added.subList( 0, 50000 ) );
+		assertThat( sorted, equalTo( Ordering.natural().sortedCopy( unsorted ) ) );
+		assertThat( replayed, equalTo( ( List<Integer> )sorted ) );
+
+		Collections.shuffle( added, random );
+		unsorted.setAll( added );
+		assertThat( sorted, equalTo( Ordering.natural().sortedCopy( added ) ) );
+		assertThat( replayed, equalTo( ( List<Integer> )sorted ) );
+	}
+
+	@Test
+	public void groupByCreatesAndDropsGroupsAsKeysComeAndGo()
+	{
+		ObservableList<String> words = FXCollections.observableArrayList( "apple", "avocado", "banana" );
+		ObservableMap<Character, ObservableList<String>> byInitial = ObservableLists.groupBy( words,
+				new Function<String, Character>()
+				{
+					@Override
+					public Character apply( String input )
+					{
+						return input.charAt( 0 );
+					}
+				} );
+		assertThat( byInitial.keySet(), equalTo( ( Set<Character> )ImmutableSet.of( 'a', 'b' ) ) );
+		ObservableList<String> a = byInitial.get( 'a' );
+		assertThat( a, equalTo( asList( "apple", "avocado" ) ) );
+
+		words.add( 1, "apricot" );
+		words.add( "cherry" );
+		words.remove( "banana" );
+		assertThat( a, equalTo( asList( "apple", "apricot", "avocado" ) ) );
+		assertThat( byInitial.get( 'c' ), equalTo( asList( "cherry" ) ) );
+		assertThat( byInitial.keySet(), equalTo( ( Set<Character> )ImmutableSet.of( 'a', 'c' ) ) );
+	}
+
+	@Test( timeout = 5000 )
+	public void groupByAppliesLargeChangesToLargeGroups()
+	{
+		ObservableList<Integer> numbers = FXCollections.observableArrayList();
+		Map<Boolean, ObservableList<Integer>> byParity = ObservableLists.groupBy( numbers,
+				new Function<Integer, Boolean>()
+				{
+					@Override
+					public Boolean apply( Integer input )
+					{
+						return input % 2 == 0;
+					}
+				} );
+		List<Integer> added = new ArrayList<>();
+		for( int i = 0; i < 100000; i++ )
+		{
+			added.add( i );
+		}
+
+		numbers.setAll( added );
+		assertThat( byParity.get( true ).size(), equalTo( 50000 ) );
+		assertThat( byParity.get( false ).get( 49999 ), equalTo( 99999 ) );
+
+		Collections.reverse( added );
+		numbers.setAll( added );
+		assertThat( byParity.get( true ).get( 0 ), equalTo( 99998 ) );
+		assertThat( byParity.get( false ).size(), equalTo( 50000 ) );
+	}
+
+	@Test
+	public void windowOnlyReportsChangesWithinTheWindow()
+	{
+		ObservableList<Integer> numbers = FXCollections.observableArrayList();
+		for( int i = 0; i < 1000; i++ )
+		{
+			numbers.add( i );
+		}
+		IntegerProperty offset = new SimpleIntegerProperty( 10 );
+		ObservableList<Integer> window = ObservableLists.window( numbers, offset, 5 );
+		assertThat( window, equalTo( asList( 10, 11, 12, 13, 14 ) ) );
+
+		final List<String> changes = new ArrayList<>();
+		window.addListener( new ListChangeListener<Integer>()
+		{
+			@Override
+			public void onChanged( ListChangeListener.Change<? extends Integer> change )
+			{
+				while( change.next() )
+				{
+					changes.add( change.getFrom() + ":" + change.getRemoved() + "->" + change.getAddedSubList() );
+				}
+			}
+		} );
+
+		numbers.add( 500, -1 );
+		numbers.remove( 999 );
+		assertThat( changes.isEmpty(), equalTo( true ) );
+
+		offset.set( 12 );
+		assertThat( window, equalTo( asList( 12, 13, 14, 15, 16 ) ) );
+		assertThat( changes, equalTo( asList( "0:[10, 11]->[]", "3:[]->[15, 16]" ) ) );
+
+		changes.clear();
+		numbers.set( 13, -2 );
+		assertThat( window, equalTo( asList( 12, -2, 14, 15, 16 ) ) );
+		assertThat( changes, equalTo( asList( "1:[13]->[-2]" ) ) );
+
+		changes.clear();
+		Integer replacement = new Integer( 14 );
+		numbers.set( 14, replacement );
+		assertTrue( window.get( 2 ) == replacement );
+		assertThat( changes, equalTo( asList( "2:[14]->[14]" ) ) );
+	}
+
 	@Test
 	public void filterContainsOnlyValuesThatFulfilThePredicate()
 	{
@@ -139,6 +482,43 @@ public class ObservableListsTest
 		assertThat( filteredElements, equalTo( asList( 2, 4, 6 ) ) );
 	}
 
+	@Test
+	public void filterOnlyReportsTheElementsThatChanged()
+	{
+		ObservableList<Integer> allElements = FXCollections.observableArrayList( 1, 2, 3, 4, 5, 6 );
+		ObservableList<Integer> filteredElements = ObservableLists.filter( allElements, new Predicate<Integer>()
+		{
+			@Override
+			public boolean apply( Integer input )
+			{
+				return input.intValue() % 2 == 0;
+			}
+		} );
+		final List<String> changes = new ArrayList<>();
+		filteredElements.addListener( new ListChangeListener<Integer>()
+		{
+			@Override
+			public void onChanged( ListChangeListener.Change<? extends Integer> change )
+			{
+				while( change.next() )
+				{
+					changes.add( change.getFrom() + ":" + change.getRemoved() + "->" + change.getAddedSubList() );
+				}
+			}
+		} );
+
+		allElements.add( 3, 10 );
+		allElements.add( 3, 11 );
+		allElements.removeAll( 2, 5 );
+		assertThat( filteredElements, equalTo( asList( 10, 4, 6 ) ) );
+		assertThat( changes, equalTo( asList( "1:[]->[10]", "0:[2]->[]" ) ) );
+
+		changes.clear();
+		FXCollections.sort( allElements, Ordering.natural().reverse() );
+		assertThat( filteredElements, equalTo( asList( 10, 6, 4 ) ) );
+		assertThat( allElements, equalTo( asList( 11, 10, 6, 4, 3, 1 ) ) );
+	}
+
 	@Test
 	public void transformContainsTransformedValues()
 	{
@@ -158,7 +538,936 @@ public class ObservableListsTest
 		assertThat( transformedElements, equalTo( asList( 2, 4, 6, 8, 10, 12, 14 ) ) );
 	}
 
-	@Ignore
+	@Test
+	public void transformOnlyAppliesTheFunctionToAddedElements()
+	{
+		final List<Integer> applied = new ArrayList<>();
+		ObservableList<Integer> allElements = FXCollections.observableArrayList( 1, 2, 3 );
+		ObservableList<Integer> transformedElements = ObservableLists.transform( allElements,
+				new Function<Integer, Integer>()
+				{
+					@Override
+					public Integer apply( Integer input )
+					{
+						applied.add( input );
+						return input.intValue() * 2;
+					}
+				} );
+		final List<String> changes = new ArrayList<>();
+		transformedElements.addListener( new ListChangeListener<Integer>()
+		{
+			@Override
+			public void onChanged( ListChangeListener.Change<? extends Integer> change )
+			{
+				while( change.next() )
+				{
+					changes.add( change.getFrom() + ":" + change.getRemoved() + "->" + change.getAddedSubList() );
+				}
+			}
+		} );
+
+		allElements.add( 1, 10 );
+		allElements.remove( 0 );
+		assertThat( transformedElements, equalTo( asList( 20, 4, 6 ) ) );
+		assertThat( applied, equalTo( asList( 1, 2, 3, 10 ) ) );
+		assertThat( changes, equalTo( asList( "1:[]->[20]", "0:[2]->[]" ) ) );
+
+		FXCollections.sort( allElements );
+		assertThat( transformedElements, equalTo( asList( 4, 6, 20 ) ) );
+		assertThat( applied, equalTo( asList( 1, 2, 3, 10 ) ) );
+	}
+
+	@Test
+	public void parallelBulkEvaluationKeepsTheOrderOfTheElements()
+	{
+		ObservableList<Integer> numbers = FXCollections.observableArrayList();
+		BulkEvaluation parallel = BulkEvaluation.parallel( 1000 );
+		ObservableList<Integer> even = ObservableLists.filter( numbers, new Predicate<Integer>()
+		{
+			@Override
+			public boolean apply( Integer input )
+			{
+				return input % 2 == 0;
+			}
+		}, parallel );
+		ObservableList<String> strings = ObservableLists.transform( even, new Function<Integer, String>()
+		{
+			@Override
+			public String apply( Integer input )
+			{
+				return String.valueOf( input );
+			}
+		}, TransformCacheSpec.none(), parallel );
+		final List<ListChangeListener.Change<? extends String>> changes = new ArrayList<>();
+		strings.addListener( new ListChangeListener<String>()
+		{
+			@Override
+			public void onChanged( ListChangeListener.Change<? extends String> change )
+			{
+				changes.add( change );
+			}
+		} );
+
+		List<Integer> added = new ArrayList<>();
+		List<String> expected = new ArrayList<>();
+		for( int i = 0; i < 10000; i++ )
+		{
+			added.add( i );
+			if( i % 2 == 0 )
+			{
+				expected.add( String.valueOf( i ) );
+			}
+		}
+		numbers.setAll( added );
+		assertThat( strings, equalTo( expected ) );
+		assertThat( changes.size(), equalTo( 1 ) );
+	}
+
+	@Test
+	public void transformCacheCanBeConfiguredAndMonitored()
+	{
+		final AtomicInteger applications = new AtomicInteger();
+		Function<String, Integer> length = new Function<String, Integer>()
+		{
+			@Override
+			public Integer apply( String input )
+			{
+				applications.incrementAndGet();
+				return input.length();
+			}
+		};
+		ObservableList<String> strings = FXCollections.observableArrayList( "a", "bb" );
+		ObservableList<Integer> lengths = ObservableLists.transform( strings, length, TransformCacheSpec.defaults()
+				.equalityKeys().strongValues().maximumSize( 10 ).recordStats() );
+
+		strings.add( new String( "a" ) );
+		assertThat( lengths, equalTo( asList( 1, 2, 1 ) ) );
+		assertThat( applications.get(), equalTo( 2 ) );
+		assertThat( ObservableLists.transformCacheStats( lengths ).hitCount(), equalTo( 1L ) );
+		assertThat( ObservableLists.transformCacheStats( lengths ).missCount(), equalTo( 2L ) );
+
+		ObservableList<Integer> uncached = ObservableLists.transform( strings, length, TransformCacheSpec.none() );
+		assertThat( uncached, equalTo( asList( 1, 2, 1 ) ) );
+		assertThat( applications.get(), equalTo( 5 ) );
+		assertThat( ObservableLists.transformCacheStats( uncached ).requestCount(), equalTo( 0L ) );
+	}
+
+	@Test
+	public void transformCacheStaysDisabledWhenModified()
+	{
+		final AtomicInteger applications = new AtomicInteger();
+		Function<String, Integer> length = new Function<String, Integer>()
+		{
+			@Override
+			public Integer apply( String input )
+			{
+				applications.incrementAndGet();
+				return input.length();
+			}
+		};
+		TransformCacheSpec spec = TransformCacheSpec.none().recordStats().maximumSize( 10 );
+		assertThat( spec.toString(), equalTo( "TransformCacheSpec{none}" ) );
+
+		ObservableList<String> strings = FXCollections.observableArrayList( "a", "a" );
+		ObservableList<Integer> lengths = ObservableLists.transform( strings, length, spec );
+		assertThat( lengths, equalTo( asList( 1, 1 ) ) );
+		assertThat( applications.get(), equalTo( 2 ) );
+		assertThat( ObservableLists.transformCacheStats( lengths ).requestCount(), equalTo( 0L ) );
+	}
+
+	@Test
+	public void transformAsyncPublishesCompletedResultsInOneChange()
+	{
+		final List<Runnable> tasks = new ArrayList<>();
+		Executor executor = new Executor()
+		{
+			@Override
+			public void execute( Runnable command )
+			{
+				tasks.add( command );
+			}
+		};
+		ManualScheduler scheduler = new ManualScheduler();
+		ObservableList<String> strings = FXCollections.observableArrayList( "a", "bb", "ccc" );
+		ObservableList<Integer> lengths = ObservableLists.transformAsync( strings, new Function<String, Integer>()
+		{
+			@Override
+			public Integer apply( String input )
+			{
+				return input.length();
+			}
+		}, executor, -1, FxDispatcher.create( scheduler, Double.POSITIVE_INFINITY ) );
+		assertThat( lengths, equalTo( asList( -1, -1, -1 ) ) );
+
+		final List<String> changes = new ArrayList<>();
+		lengths.addListener( new ListChangeListener<Integer>()
+		{
+			@Override
+			public void onChanged( ListChangeListener.Change<? extends Integer> change )
+			{
+				while( change.next() )
+				{
+					changes.add( change.getFrom() + ":" + change.getRemoved() + "->" + change.getAddedSubList() );
+				}
+			}
+		} );
+
+		tasks.get( 2 ).run();
+		tasks.get( 0 ).run();
+		strings.remove( "bb" );
+		tasks.get( 1 ).run();
+		scheduler.runDueTasks();
+		assertThat( lengths, equalTo( asList( 1, 3 ) ) );
+		assertThat( changes, equalTo( asList( "1:[-1]->[]", "0:[-1, -1]->[1, 3]" ) ) );
+	}
+
+	@Test
+	public void transformAsyncReportsFailuresAndRetriesOnUpdate()
+	{
+		Executor executor = new Executor()
+		{
+			@Override
+			public void execute( Runnable command )
+			{
+				command.run();
+			}
+		};
+		ManualScheduler scheduler = new ManualScheduler();
+		ObservableList<StringProperty> strings = FXCollections.observableArrayList(
+				new Callback<StringProperty, Observable[]>()
+				{
+					@Override
+					public Observable[] call( StringProperty property )
+					{
+						return new Observable[] { property };
+					}
+				} );
+		StringProperty bad = new SimpleStringProperty( "bad" );
+		strings.addAll( new SimpleStringProperty( "a" ), bad );
+
+		final List<Throwable> failures = new ArrayList<>();
+		Thread.UncaughtExceptionHandler handler = Thread.currentThread().getUncaughtExceptionHandler();
+		Thread.currentThread().setUncaughtExceptionHandler( new Thread.UncaughtExceptionHandler()
+		{
+			@Override
+			public void uncaughtException( Thread thread, Throwable failure )
+			{
+				failures.add( failure );
+			}
+		} );
+		ObservableList<String> upper;
+		try
+		{
+			upper = ObservableLists.transformAsync( strings, new Function<StringProperty, String>()
+			{
+				@Override
+				public String apply( StringProperty input )
+				{
+					checkArgument( !input.get().equals( "bad" ) );
+					return input.get().toUpperCase();
+				}
+			}, executor, "?", FxDispatcher.create( scheduler, Double.POSITIVE_INFINITY ) );
+		}
+		finally
+		{
+			Thread.currentThread().setUncaughtExceptionHandler( handler );
+		}
+		scheduler.runDueTasks();
+		assertThat( upper, equalTo( asList( "A", "?" ) ) );
+		assertThat( failures.size(), equalTo( 1 ) );
+
+		bad.set( "good" );
+		scheduler.runDueTasks();
+		assertThat( upper, equalTo( asList( "A", "GOOD" ) ) );
+	}
+
+	@Test
+	public void transformAsyncPublishesListsWithEqualPlaceholdersOnTheSameDispatcher()
+	{
+		Executor executor = new Executor()
+		{
+			@Override
+			public void execute( Runnable command )
+			{
+				command.run();
+			}
+		};
+		Function<String, String> upperCase = new Function<String, String>()
+		{
+			@Override
+			public String apply( String input )
+			{
+				return input.toUpperCase();
+			}
+		};
+		ManualScheduler scheduler = new ManualScheduler();
+		FxDispatcher dispatcher = FxDispatcher.create( scheduler, Double.POSITIVE_INFINITY );
+		ObservableList<String> a = ObservableLists.transformAsync( FXCollections.observableArrayList( "a", "b" ),
+				upperCase, executor, "?", dispatcher );
+		ObservableList<String> b = ObservableLists.transformAsync( FXCollections.observableArrayList( "c", "d" ),
+				upperCase, executor, "?", dispatcher );
+		assertThat( a, equalTo( b ) );
+
+		scheduler.runDueTasks();
+		assertThat( a, equalTo( asList( "A", "B" ) ) );
+		assertThat( b, equalTo( asList( "C", "D" ) ) );
+	}
+
+	@Test
+	public void prependAndAppendElementFollowTheInputList()
+	{
+		ObservableList<Integer> input = FXCollections.observableArrayList( 1, 2, 3 );
+		ObservableList<Integer> prepended = ObservableLists.prependElement( input, 0 );
+		ObservableList<Integer> appended = ObservableLists.appendElement( input, 4 );
+		final List<String> changes = new ArrayList<>();
+		prepended.addListener( new ListChangeListener<Integer>()
+		{
+			@Override
+			public void onChanged( ListChangeListener.Change<? extends Integer> change )
+			{
+				while( change.next() )
+				{
+					changes.add( change.getFrom() + ":" + change.getRemoved() + "->" + change.getAddedSubList() );
+				}
+			}
+		} );
+
+		assertThat( prepended, equalTo( asList( 0, 1, 2, 3 ) ) );
+		assertThat( appended, equalTo( asList( 1, 2, 3, 4 ) ) );
+
+		input.add( 1, 5 );
+		input.remove( Integer.valueOf( 3 ) );
+
+		assertThat( prepended, equalTo( asList( 0, 1, 5, 2 ) ) );
+		assertThat( appended, equalTo( asList( 1, 5, 2, 4 ) ) );
+		assertThat( changes, equalTo( asList( "2:[]->[5]", "4:[3]->[]" ) ) );
+	}
+
+	@Test
+	public void diffProducesAMinimalEditScript()
+	{
+		List<String> from = asList( "A", "B", "C", "D", "E", "F" );
+		List<String> to = asList( "A", "C", "D", "X", "E", "F", "G" );
+
+		ListDiff<String> diff = ObservableLists.diff( from, to );
+		assertThat( diff.toString(), equalTo( "[1:[B]->[], 3:[]->[X], 6:[]->[G]]" ) );
+
+		List<String> list = new ArrayList<>( from );
+		diff.applyTo( list );
+		assertThat( list, equalTo( to ) );
+		assertTrue( ObservableLists.diff( from, from ).isEmpty() );
+	}
+
+	@Test
+	public void fxCoalescesChangesIntoOneRateLimitedFlush()
+	{
+		ManualScheduler scheduler = new ManualScheduler();
+		FxDispatcher dispatcher = FxDispatcher.create( scheduler, 10 );
+		ObservableList<Integer> original = FXCollections.observableArrayList( 1, 2 );
+		ObservableList<Integer> fxList = ObservableLists.fx( original, dispatcher );
+		ObservableList<Integer> otherOriginal = FXCollections.observableArrayList( 1 );
+		ObservableList<Integer> otherFxList = ObservableLists.fx( otherOriginal, dispatcher );
+
+		original.add( 3 );
+		original.add( 4 );
+		original.remove( 0 );
+		otherOriginal.add( 2 );
+		assertThat( fxList, equalTo( asList( 1, 2 ) ) );
+		assertThat( scheduler.getQueuedTaskCount(), equalTo( 1 ) );
+		assertThat( dispatcher.getPendingCount(), equalTo( 2 ) );
+		assertThat( ( ( DerivedObservableList<?> )fxList ).getPendingUpdateCount(), equalTo( 3 ) );
+		assertThat( ( ( DerivedObservableList<?> )otherFxList ).getPendingUpdateCount(), equalTo( 1 ) );
+
+		scheduler.runDueTasks();
+		assertThat( fxList, equalTo( asList( 2, 3, 4 ) ) );
+		assertThat( otherFxList, equalTo( asList( 1, 2 ) ) );
+		assertThat( ( ( DerivedObservableList<?> )fxList ).getPendingUpdateCount(), equalTo( 0 ) );
+		assertThat( dispatcher.getFlushCount(), equalTo( 1L ) );
+		assertThat( dispatcher.getInvalidationCount(), equalTo( 4L ) );
+
+		original.add( 5 );
+		scheduler.advance( 50, TimeUnit.MILLISECONDS );
+		assertThat( fxList, equalTo( asList( 2, 3, 4 ) ) );
+		scheduler.advance( 50, TimeUnit.MILLISECONDS );
+		assertThat( fxList, equalTo( asList( 2, 3, 4, 5 ) ) );
+	}
+
+	@Test
+	public void fromExpressionReportsFailuresAndReEvaluatesWhenInvalidated()
+	{
+		final List<Runnable> tasks = new ArrayList<>();
+		Executor executor = new Executor()
+		{
+			@Override
+			public void execute( Runnable command )
+			{
+				tasks.add( command );
+			}
+		};
+		ManualScheduler scheduler = new ManualScheduler();
+		FxDispatcher dispatcher = FxDispatcher.create( scheduler, Double.POSITIVE_INFINITY );
+		final StringProperty value = new SimpleStringProperty( "a" );
+		final AtomicInteger evaluations = new AtomicInteger();
+		ObservableList<String> list = ObservableLists.fromExpression( new Callable<List<String>>()
+		{
+			@Override
+			public List<String> call()
+			{
+				if( evaluations.incrementAndGet() == 1 )
+				{
+					value.set( "b" );
+					throw new IllegalStateException( "first evaluation fails" );
+				}
+				return asList( value.get() );
+			}
+		}, FXCollections.<Observable> observableArrayList( value ), executor, dispatcher );
+
+		final List<Throwable> failures = new ArrayList<>();
+		Thread.UncaughtExceptionHandler handler = Thread.currentThread().getUncaughtExceptionHandler();
+		Thread.currentThread().setUncaughtExceptionHandler( new Thread.UncaughtExceptionHandler()
+		{
+			@Override
+			public void uncaughtException( Thread thread, Throwable failure )
+			{
+				failures.add( failure );
+			}
+		} );
+		try
+		{
+			tasks.remove( 0 ).run();
+		}
+		finally
+		{
+			Thread.currentThread().setUncaughtExceptionHandler( handler );
+		}
+		assertThat( failures.size(), equalTo( 1 ) );
+		assertThat( evaluations.get(), equalTo( 2 ) );
+		assertThat( tasks.isEmpty(), equalTo( true ) );
+
+		scheduler.runDueTasks();
+		assertThat( list, equalTo( asList( "b" ) ) );
+	}
+
+	@Test
+	public void fromExpressionPublishesListsWithEqualContentsOnTheSameDispatcher()
+	{
+		Executor executor = new Executor()
+		{
+			@Override
+			public void execute( Runnable command )
+			{
+				command.run();
+			}
+		};
+		ManualScheduler scheduler = new ManualScheduler();
+		FxDispatcher dispatcher = FxDispatcher.create( scheduler, Double.POSITIVE_INFINITY );
+		final StringProperty value = new SimpleStringProperty( "a" );
+		ObservableList<String> a = ObservableLists.fromExpression( new Callable<List<String>>()
+		{
+			@Override
+			public List<String> call()
+			{
+				return asList( value.get() );
+			}
+		}, FXCollections.<Observable> observableArrayList( value ), executor, dispatcher );
+		ObservableList<String> b = ObservableLists.fromExpression( new Callable<List<String>>()
+		{
+			@Override
+			public List<String> call()
+			{
+				return asList( value.get(), value.get() );
+			}
+		}, FXCollections.<Observable> observableArrayList( value ), executor, dispatcher );
+		assertThat( a, equalTo( b ) );
+
+		scheduler.runDueTasks();
+		assertThat( a, equalTo( asList( "a" ) ) );
+		assertThat( b, equalTo( asList( "a", "a" ) ) );
+
+		value.set( "b" );
+		scheduler.runDueTasks();
+		assertThat( a, equalTo( asList( "b" ) ) );
+		assertThat( b, equalTo( asList( "b", "b" ) ) );
+	}
+
+	@Test
+	public void fxPublishesEqualButDistinctReplacements()
+	{
+		ManualScheduler scheduler = new ManualScheduler();
+		ObservableList<String> original = FXCollections.observableArrayList( "a", "b" );
+		ObservableList<String> fxList = ObservableLists.fx( original, FxDispatcher.create( scheduler, 10 ) );
+
+		String replacement = new String( "b" );
+		original.set( 1, replacement );
+		scheduler.runDueTasks();
+		assertTrue( fxList.get( 1 ) == replacement );
+	}
+
+	@Test
+	public void fxFlushesListsWithEqualContentsOnTheSameDispatcher()
+	{
+		ManualScheduler scheduler = new ManualScheduler();
+		FxDispatcher dispatcher = FxDispatcher.create( scheduler, Double.POSITIVE_INFINITY );
+		ObservableList<Integer> a = FXCollections.observableArrayList();
+		ObservableList<Integer> b = FXCollections.observableArrayList();
+		ObservableList<Integer> fxA = ObservableLists.fx( a, dispatcher );
+		ObservableList<Integer> fxB = ObservableLists.fx( b, dispatcher );
+
+		a.setAll( 1 );
+		b.setAll( 1 );
+		assertThat( dispatcher.getPendingCount(), equalTo( 2 ) );
+
+		scheduler.runDueTasks();
+		assertThat( fxA, equalTo( asList( 1 ) ) );
+		assertThat( fxB, equalTo( asList( 1 ) ) );
+	}
+
+	@Test
+	public void fromExpressionEvaluatesOnceForConcurrentInvalidations()
+	{
+		final List<Runnable> tasks = new ArrayList<>();
+		Executor executor = new Executor()
+		{
+			@Override
+			public void execute( Runnable command )
+			{
+				tasks.add( command );
+			}
+		};
+		ManualScheduler scheduler = new ManualScheduler();
+		FxDispatcher dispatcher = FxDispatcher.create( scheduler, Double.POSITIVE_INFINITY );
+		final IntegerProperty size = new SimpleIntegerProperty( 1 );
+		final AtomicInteger evaluations = new AtomicInteger();
+		ObservableList<Integer> list = ObservableLists.fromExpression( new Callable<List<Integer>>()
+		{
+			@Override
+			public List<Integer> call()
+			{
+				evaluations.incrementAndGet();
+				List<Integer> result = new ArrayList<>();
+				for( int i = 0; i < size.get(); i++ )
+				{
+					result.add( i );
+				}
+				return result;
+			}
+		}, FXCollections.<Observable> observableArrayList( size ), executor, dispatcher );
+
+		size.set( 2 );
+		size.set( 3 );
+		assertThat( tasks.size(), equalTo( 1 ) );
+		assertThat( list.isEmpty(), equalTo( true ) );
+
+		tasks.remove( 0 ).run();
+		assertThat( evaluations.get(), equalTo( 1 ) );
+		assertThat( list.isEmpty(), equalTo( true ) );
+
+		scheduler.runDueTasks();
+		assertThat( list, equalTo( asList( 0, 1, 2 ) ) );
+		assertThat( dispatcher.getFlushCount(), equalTo( 1L ) );
+	}
+
+	@Test
+	public void throttleAndDebounceLimitTheRateOfChanges()
+	{
+		ManualScheduler scheduler = new ManualScheduler();
+		ObservableList<Integer> original = FXCollections.observableArrayList();
+		ObservableList<Integer> throttled = ObservableLists.throttle( original, 100, TimeUnit.MILLISECONDS, scheduler );
+		ObservableList<Integer> debounced = ObservableLists.debounce( original, 100, TimeUnit.MILLISECONDS, scheduler );
+
+		original.add( 1 );
+		scheduler.runDueTasks();
+		assertThat( throttled, equalTo( asList( 1 ) ) );
+		assertThat( debounced.isEmpty(), equalTo( true ) );
+
+		for( int i = 2; i <= 4; i++ )
+		{
+			scheduler.advance( 40, TimeUnit.MILLISECONDS );
+			original.add( i );
+		}
+		assertThat( throttled, equalTo( asList( 1, 2, 3 ) ) );
+		assertThat( debounced.isEmpty(), equalTo( true ) );
+
+		scheduler.advance( 99, TimeUnit.MILLISECONDS );
+		assertThat( throttled, equalTo( asList( 1, 2, 3, 4 ) ) );
+		assertThat( debounced.isEmpty(), equalTo( true ) );
+		scheduler.advance( 1, TimeUnit.MILLISECONDS );
+		assertThat( debounced, equalTo( asList( 1, 2, 3, 4 ) ) );
+
+		Integer replacement = new Integer( 4 );
+		original.set( 3, replacement );
+		scheduler.advance( 100, TimeUnit.MILLISECONDS );
+		assertTrue( throttled.get( 3 ) == replacement );
+		assertTrue( debounced.get( 3 ) == replacement );
+	}
+
+	@Test
+	public void derivedListsAreComputedOnDemand()
+	{
+		ObservableList<Integer> original = FXCollections.observableArrayList( 1, 2, 3, 4 );
+		final AtomicInteger evaluations = new AtomicInteger();
+		ObservableList<Integer> filtered = ObservableLists.filter( original, new Predicate<Integer>()
+		{
+			@Override
+			public boolean apply( Integer input )
+			{
+				evaluations.incrementAndGet();
+				return input % 2 == 0;
+			}
+		} );
+		assertThat( evaluations.get(), equalTo( 0 ) );
+
+		assertThat( filtered, equalTo( asList( 2, 4 ) ) );
+		assertThat( evaluations.get(), equalTo( 4 ) );
+
+		original.add( 5 );
+		original.add( 6 );
+		assertThat( evaluations.get(), equalTo( 4 ) );
+
+		ListChangeListener<Integer> listener = new ListChangeListener<Integer>()
+		{
+			@Override
+			public void onChanged( ListChangeListener.Change<? extends Integer> change )
+			{
+			}
+		};
+		filtered.addListener( listener );
+		assertThat( evaluations.get(), equalTo( 10 ) );
+		original.add( 8 );
+		assertThat( evaluations.get(), equalTo( 11 ) );
+		assertThat( filtered, equalTo( asList( 2, 4, 6, 8 ) ) );
+
+		filtered.removeListener( listener );
+		original.add( 10 );
+		assertThat( evaluations.get(), equalTo( 11 ) );
+		assertThat( filtered, equalTo( asList( 2, 4, 6, 8, 10 ) ) );
+	}
+
+	@Test
+	public void instrumentedListsAreRegisteredOverJmx() throws Exception
+	{
+		ObservableList<Integer> original = FXCollections.observableArrayList( 1, 2, 3, 4 );
+		Instrumentation.enable();
+		try
+		{
+			ObservableList<Integer> filtered = Instrumentation.name( ObservableLists.filter( original,
+					new Predicate<Integer>()
+					{
+						@Override
+						public boolean apply( Integer input )
+						{
+							return input % 2 == 0;
+						}
+					} ), "evens" );
+			filtered.addListener( mock( ListChangeListener.class ) );
+			original.addAll( 5, 6, 8 );
+			original.add( 7 );
+
+			ListMetricsMXBean metrics = Instrumentation.getRegistry().get( "evens" );
+			assertThat( metrics, equalTo( Instrumentation.getMetrics( filtered ) ) );
+			assertThat( metrics.getRecomputeCount(), equalTo( 2L ) );
+			assertThat( metrics.getIncomingChangeSize(), equalTo( 4L ) );
+			assertThat( metrics.getOutgoingChangeCount(), equalTo( 1L ) );
+			assertThat( metrics.getOutgoingChangeSize(), equalTo( 2L ) );
+			assertThat( metrics.getSize(), equalTo( 4 ) );
+
+			Object size = ManagementFactory.getPlatformMBeanServer().getAttribute( Instrumentation.objectName( "evens" ),
+					"Size" );
+			assertThat( size, equalTo( ( Object )4 ) );
+
+			ObservableList<Integer> unnamed = ObservableLists.concat( filtered, original );
+			String generatedName = Instrumentation.getMetrics( unnamed ).getName();
+			assertThat( Instrumentation.getRegistry().containsKey( generatedName ), equalTo( true ) );
+			assertThat( ManagementFactory.getPlatformMBeanServer().isRegistered(
+					Instrumentation.objectName( generatedName ) ), equalTo( false ) );
+		}
+		finally
+		{
+			Instrumentation.disable();
+		}
+	}
+
+	@Test
+	public void aggregatesFollowTheList()
+	{
+		ObservableList<Integer> original = FXCollections.observableArrayList( 3, 1, 4, 1, 5 );
+		ObservableLongValue sum = ObservableLists.sumLong( original );
+		ObservableIntegerValue odd = ObservableLists.count( original, new Predicate<Integer>()
+		{
+			@Override
+			public boolean apply( Integer input )
+			{
+				return input % 2 != 0;
+			}
+		} );
+		ObservableValue<Integer> min = ObservableLists.min( original, Ordering.natural() );
+		ObservableValue<Integer> max = ObservableLists.max( original, Ordering.natural() );
+		ObservableList<String> strings = ObservableLists.transform( original, new Function<Integer, String>()
+		{
+			@Override
+			public String apply( Integer input )
+			{
+				return input.toString();
+			}
+		} );
+		ObservableValue<String> joined = ObservableLists.reduce( strings, new Monoid<String>()
+		{
+			@Override
+			public String identity()
+			{
+				return "";
+			}
+
+			@Override
+			public String combine( String left, String right )
+			{
+				return left + right;
+			}
+		} );
+
+		assertThat( sum.get(), equalTo( 14L ) );
+		assertThat( odd.get(), equalTo( 4 ) );
+		assertThat( min.getValue(), equalTo( 1 ) );
+		assertThat( max.getValue(), equalTo( 5 ) );
+		assertThat( joined.getValue(), equalTo( "31415" ) );
+
+		original.removeAll( 1, 5 );
+		original.add( 0, 9 );
+		FXCollections.sort( original );
+
+		assertThat( sum.get(), equalTo( 16L ) );
+		assertThat( odd.get(), equalTo( 2 ) );
+		assertThat( min.getValue(), equalTo( 3 ) );
+		assertThat( max.getValue(), equalTo( 9 ) );
+		assertThat( joined.getValue(), equalTo( "349" ) );
+
+		original.clear();
+		assertThat( min.getValue(), equalTo( null ) );
+	}
+
+	@Test
+	public void flatMapForwardsInnerAndOuterChanges()
+	{
+		final Map<String, ObservableList<Integer>> children = new HashMap<>();
+		children.put( "a", FXCollections.observableArrayList( 1, 2 ) );
+		children.put( "b", FXCollections.observableArrayList( 3 ) );
+		children.put( "c", FXCollections.<Integer> observableArrayList() );
+		ObservableList<String> parents = FXCollections.observableArrayList( "a", "b" );
+		ObservableList<Integer> flattened = ObservableLists.flatMap( parents,
+				new Function<String, ObservableList<Integer>>()
+				{
+					@Override
+					public ObservableList<Integer> apply( String input )
+					{
+						return children.get( input );
+					}
+				} );
+		final List<String> changes = new ArrayList<>();
+		flattened.addListener( new ListChangeListener<Integer>()
+		{
+			@Override
+			public void onChanged( ListChangeListener.Change<? extends Integer> change )
+			{
+				changes.add( change.toString() );
+			}
+		} );
+		assertThat( flattened, equalTo( asList( 1, 2, 3 ) ) );
+
+		children.get( "b" ).add( 4 );
+		children.get( "a" ).remove( 0 );
+		parents.add( 1, "c" );
+		children.get( "c" ).add( 5 );
+		parents.remove( "a" );
+
+		assertThat( flattened, equalTo( asList( 5, 3, 4 ) ) );
+		assertThat( changes.size(), equalTo( 4 ) );
+	}
+
+	@Test
+	public void filterWithExtractorReactsToElementProperties()
+	{
+		IntegerProperty first = new SimpleIntegerProperty( 1 );
+		IntegerProperty second = new SimpleIntegerProperty( 2 );
+		ObservableList<IntegerProperty> original = FXCollections.observableArrayList( first, second );
+		ObservableList<IntegerProperty> even = ObservableLists.filter( original, new Predicate<IntegerProperty>()
+		{
+			@Override
+			public boolean apply( IntegerProperty input )
+			{
+				return input.get() % 2 == 0;
+			}
+		}, new Function<IntegerProperty, Observable[]>()
+		{
+			@Override
+			public Observable[] apply( IntegerProperty input )
+			{
+				return new Observable[] { input };
+			}
+		} );
+		final List<String> changes = new ArrayList<>();
+		even.addListener( new ListChangeListener<IntegerProperty>()
+		{
+			@Override
+			public void onChanged( ListChangeListener.Change<? extends IntegerProperty> change )
+			{
+				while( change.next() )
+				{
+					changes.add( change.wasUpdated() ? "updated " + change.getFrom() : change.getAddedSize() + "+"
+							+ change.getRemovedSize() + "-" );
+				}
+			}
+		} );
+
+		first.set( 4 );
+		assertThat( even, equalTo( asList( first, second ) ) );
+		second.set( 6 );
+		second.set( 7 );
+		assertThat( even, equalTo( asList( first ) ) );
+		assertThat( changes, equalTo( asList( "1+0-", "updated 1", "0+1-" ) ) );
+
+		original.remove( first );
+		changes.clear();
+		first.set( 8 );
+		assertThat( changes.isEmpty(), equalTo( true ) );
+		assertThat( even.isEmpty(), equalTo( true ) );
+	}
+
+	@Test
+	public void filterWithObservablePredicateReportsOnlyTheDelta()
+	{
+		final AtomicInteger evaluations = new AtomicInteger();
+		class Prefix implements NarrowingPredicate<String>
+		{
+			private final String prefix;
+
+			Prefix( String prefix )
+			{
+				this.prefix = prefix;
+			}
+
+			@Override
+			public boolean apply( String input )
+			{
+				evaluations.incrementAndGet();
+				return input.startsWith( prefix );
+			}
+
+			@Override
+			public boolean narrows( Predicate<?> previous )
+			{
+				return previous instanceof Prefix && prefix.startsWith( ( ( Prefix )previous ).prefix );
+			}
+		}
+		ObservableList<String> original = FXCollections.observableArrayList( "apple", "apricot", "banana", "avocado" );
+		ObjectProperty<Predicate<? super String>> condition = new SimpleObjectProperty<Predicate<? super String>>(
+				new Prefix( "b" ) );
+		ObservableList<String> filtered = ObservableLists.filter( original, condition );
+		final List<String> changes = new ArrayList<>();
+		filtered.addListener( new ListChangeListener<String>()
+		{
+			@Override
+			public void onChanged( ListChangeListener.Change<? extends String> change )
+			{
+				while( change.next() )
+				{
+					changes.add( change.getAddedSubList() + "-" + change.getRemoved() );
+				}
+			}
+		} );
+		assertThat( filtered, equalTo( asList( "banana" ) ) );
+
+		evaluations.set( 0 );
+		condition.set( new Prefix( "a" ) );
+		assertThat( filtered, equalTo( asList( "apple", "apricot", "avocado" ) ) );
+		assertThat( evaluations.get(), equalTo( 4 ) );
+
+		evaluations.set( 0 );
+		changes.clear();
+		condition.set( new Prefix( "ap" ) );
+		assertThat( filtered, equalTo( asList( "apple", "apricot" ) ) );
+		assertThat( evaluations.get(), equalTo( 3 ) );
+		assertThat( changes, equalTo( asList( "[]-[avocado]" ) ) );
+	}
+
+	@Test
+	public void batchedListReportsOneChangePerBatch()
+	{
+		final ObservableList<Integer> original = FXCollections.observableArrayList( 1, 2, 3 );
+		final BatchedObservableList<Integer> batched = ObservableLists.batched( original );
+		ObservableList<Integer> even = ObservableLists.filter( batched, new Predicate<Integer>()
+		{
+			@Override
+			public boolean apply( Integer input )
+			{
+				return input % 2 == 0;
+			}
+		} );
+		final AtomicInteger changes = new AtomicInteger();
+		even.addListener( new ListChangeListener<Integer>()
+		{
+			@Override
+			public void onChanged( ListChangeListener.Change<? extends Integer> change )
+			{
+				changes.incrementAndGet();
+			}
+		} );
+
+		batched.runBatch( new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				for( int i = 4; i <= 100; i++ )
+				{
+					batched.add( i );
+				}
+				original.remove( 0 );
+				batched.set( 0, 200 );
+			}
+		} );
+		assertThat( changes.get(), equalTo( 1 ) );
+		assertThat( batched, equalTo( ( List<Integer> )original ) );
+		assertThat( even.size(), equalTo( 50 ) );
+		assertThat( even.get( 0 ), equalTo( 200 ) );
+
+		original.add( 102 );
+		assertThat( changes.get(), equalTo( 2 ) );
+		assertThat( even.get( 50 ), equalTo( 102 ) );
+	}
+
+	@Test
+	public void batchedListRejectsUnbalancedEndChange()
+	{
+		ObservableList<Integer> original = FXCollections.observableArrayList( 1 );
+		BatchedObservableList<Integer> batched = ObservableLists.batched( original );
+		final AtomicInteger changes = new AtomicInteger();
+		batched.addListener( new ListChangeListener<Integer>()
+		{
+			@Override
+			public void onChanged( ListChangeListener.Change<? extends Integer> change )
+			{
+				changes.incrementAndGet();
+			}
+		} );
+
+		try
+		{
+			batched.endChange();
+			fail();
+		}
+		catch( IllegalStateException e )
+		{
+		}
+
+		original.add( 2 );
+		assertThat( changes.get(), equalTo( 1 ) );
+		batched.beginChange();
+		batched.addAll( 3, 4 );
+		batched.endChange();
+		assertThat( changes.get(), equalTo( 2 ) );
+		assertThat( batched, equalTo( asList( 1, 2, 3, 4 ) ) );
+	}
+
 	@Test
 	public void concatTest()
 	{